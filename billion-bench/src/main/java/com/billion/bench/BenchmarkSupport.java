@@ -0,0 +1,46 @@
+package com.billion.bench;
+
+import ai.onnxruntime.OrtException;
+import com.billion.algrithm.Recommendation;
+import com.billion.properties.OnnxProperties;
+
+import java.util.Random;
+
+/**
+ * 基准测试的公共方法
+ */
+public class BenchmarkSupport {
+
+    //模型文件路径，默认使用项目自带的模型，可通过-Dbillion.onnx.model-path指定
+    public static final String MODEL_PATH = System.getProperty("billion.onnx.model-path", "data/model/model_quant.onnx");
+
+    //推荐的菜品数，与billion.recommend.top-k的默认值一致
+    public static final int TOP_K = 20;
+
+    /**
+     * 使用默认配置和指定的模型文件创建推理组件
+     * @return
+     * @throws OrtException
+     */
+    public static Recommendation createRecommendation() throws OrtException {
+        OnnxProperties onnxProperties = new OnnxProperties();
+        onnxProperties.setModelPath(MODEL_PATH);
+        return new Recommendation(onnxProperties);
+    }
+
+    /**
+     * 生成按行展开的随机点单序列，菜品id取值[1, classNum)，固定随机种子保证每次运行输入相同
+     * @param batchSize
+     * @param length
+     * @param classNum
+     * @return
+     */
+    public static long[] randomInputs(int batchSize, int length, int classNum) {
+        Random random = new Random(42);
+        long[] inputs = new long[batchSize * length];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = 1 + random.nextInt(classNum - 1);
+        }
+        return inputs;
+    }
+}
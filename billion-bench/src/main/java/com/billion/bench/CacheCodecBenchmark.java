@@ -0,0 +1,101 @@
+package com.billion.bench;
+
+import com.billion.cache.BinaryRedisSerializer;
+import com.billion.entity.DishFlavor;
+import com.billion.result.Result;
+import com.billion.vo.DishVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 菜品缓存值的序列化基准测试，jdk为原来的JDK序列化，作为对照
+ * 每个参数组合开始前输出序列化后的字节数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    //一个分类下的菜品数
+    @Param({"10", "50"})
+    private int dishCount;
+
+    //jdk：JDK序列化；binary：二进制编码不压缩；binary_lz4：二进制编码，超过默认阈值时压缩
+    @Param({"jdk", "binary", "binary_lz4"})
+    private String codec;
+
+    private RedisSerializer<Object> serializer;
+
+    private Result<List<DishVO>> menu;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        switch (codec) {
+            case "jdk":
+                serializer = new JdkSerializationRedisSerializer(classLoader);
+                break;
+            case "binary":
+                serializer = new BinaryRedisSerializer(classLoader, true, Integer.MAX_VALUE);
+                break;
+            default:
+                serializer = new BinaryRedisSerializer(classLoader, true, 1024);
+        }
+        menu = Result.success(menu(dishCount));
+        bytes = serializer.serialize(menu);
+        System.out.printf("%n%s，菜品数：%d，字节数：%d%n", codec, dishCount, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(menu);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * 生成一个分类下的菜品列表，字段取值接近实际数据，固定内容保证每次运行输入相同
+     * @param dishCount
+     * @return
+     */
+    private static List<DishVO> menu(int dishCount) {
+        List<DishVO> list = new ArrayList<>(dishCount);
+        LocalDateTime updateTime = LocalDateTime.of(2024, 5, 1, 10, 30);
+        for (int i = 0; i < dishCount; i++) {
+            long id = 46 + i;
+            List<DishFlavor> flavors = new ArrayList<>(Arrays.asList(
+                    new DishFlavor(id * 2, id, "辣度", "[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]"),
+                    new DishFlavor(id * 2 + 1, id, "忌口", "[\"不要葱\",\"不要蒜\",\"不要香菜\",\"不要辣\"]")));
+            DishVO dishVO = DishVO.builder()
+                    .id(id)
+                    .name("招牌菜品" + i)
+                    .categoryId(16L)
+                    .price(new BigDecimal("38.00").add(BigDecimal.valueOf(i)))
+                    .image("https://billion-supermarket.oss-cn-beijing.aliyuncs.com/" + (100000 + i) + "-dish.png")
+                    .description("精选食材，现点现做")
+                    .status(1)
+                    .updateTime(updateTime.plusMinutes(i))
+                    .categoryName("热菜")
+                    .flavors(flavors)
+                    .build();
+            list.add(dishVO);
+        }
+        return list;
+    }
+}
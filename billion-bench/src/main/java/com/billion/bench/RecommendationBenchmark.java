@@ -0,0 +1,62 @@
+package com.billion.bench;
+
+import ai.onnxruntime.OrtException;
+import com.billion.algrithm.Recommendation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推荐模型推理的基准测试：只推理，以及推理加前K个选择的完整流程
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationBenchmark {
+
+    @Param({"1", "8", "32", "128", "256"})
+    private int batchSize;
+
+    //模型的类别数为26，序列长度覆盖1到26
+    @Param({"1", "8", "20", "26"})
+    private int length;
+
+    private Recommendation recommendation;
+
+    //按行展开的输入，用于forward
+    private long[] inputs;
+
+    //二维输入，用于getRecommendation
+    private long[][] batchInputs;
+
+    @Setup(Level.Trial)
+    public void setup() throws OrtException {
+        recommendation = BenchmarkSupport.createRecommendation();
+        inputs = BenchmarkSupport.randomInputs(batchSize, length, recommendation.getClassNum());
+        batchInputs = new long[batchSize][length];
+        for (int i = 0; i < batchSize; i++) {
+            System.arraycopy(inputs, i * length, batchInputs[i], 0, length);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws OrtException {
+        recommendation.destroy();
+    }
+
+    @Benchmark
+    public void forward(Blackhole blackhole) {
+        FloatBuffer outputs = recommendation.forward(inputs, batchSize, length);
+        blackhole.consume(outputs.get(0));
+    }
+
+    @Benchmark
+    public int[][] getRecommendation() {
+        return recommendation.getRecommendation(batchInputs, BenchmarkSupport.TOP_K);
+    }
+}
@@ -0,0 +1,90 @@
+package com.billion.bench;
+
+import com.billion.algrithm.Recommendation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从模型得分中选出前K个菜品的基准测试，argSort为原来对全部类别冒泡排序的实现，作为对照
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKBenchmark {
+
+    //模型的类别数
+    private static final int CLASS_NUM = 26;
+
+    @Param({"1", "8", "32", "128", "256"})
+    private int batchSize;
+
+    @Param({"5", "20"})
+    private int k;
+
+    private float[] scores;
+
+    private FloatBuffer scoreBuffer;
+
+    private int[] out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        scores = new float[batchSize * CLASS_NUM];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat();
+        }
+        scoreBuffer = FloatBuffer.wrap(scores);
+        out = new int[k];
+    }
+
+    @Benchmark
+    public void topK(Blackhole blackhole) {
+        for (int i = 0; i < batchSize; i++) {
+            Recommendation.topK(scoreBuffer, i * CLASS_NUM, CLASS_NUM, k, out);
+            blackhole.consume(out);
+        }
+    }
+
+    @Benchmark
+    public void argSort(Blackhole blackhole) {
+        float[] row = new float[CLASS_NUM];
+        for (int i = 0; i < batchSize; i++) {
+            System.arraycopy(scores, i * CLASS_NUM, row, 0, CLASS_NUM);
+            blackhole.consume(argSort(row));
+        }
+    }
+
+    /**
+     * 原实现：冒泡排序全部类别，得到按得分降序排列的下标
+     * @param arr 会被修改
+     * @return
+     */
+    private static int[] argSort(float[] arr) {
+        int[] index = new int[arr.length];
+        for (int i = 0; i < arr.length; i++) {
+            index[i] = i;
+        }
+        for (int i = 0; i < arr.length; i++) {
+            for (int j = 0; j < arr.length - i - 1; j++) {
+                if (arr[j] < arr[j + 1]) {
+                    float temp = arr[j];
+                    arr[j] = arr[j + 1];
+                    arr[j + 1] = temp;
+
+                    int t = index[j];
+                    index[j] = index[j + 1];
+                    index[j + 1] = t;
+                }
+            }
+        }
+        return index;
+    }
+}
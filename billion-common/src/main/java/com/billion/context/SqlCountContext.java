@@ -0,0 +1,36 @@
+package com.billion.context;
+
+/**
+ * 记录当前请求执行的SQL语句数量
+ */
+public class SqlCountContext {
+
+    public static ThreadLocal<int[]> threadLocal = new ThreadLocal<>();
+
+    /**
+     * 开始统计，计数清零
+     */
+    public static void start() {
+        threadLocal.set(new int[1]);
+    }
+
+    /**
+     * 计数加一，未开始统计时（如定时任务线程）忽略
+     */
+    public static void increment() {
+        int[] counter = threadLocal.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+    }
+
+    public static int getCount() {
+        int[] counter = threadLocal.get();
+        return counter == null ? 0 : counter[0];
+    }
+
+    public static void remove() {
+        threadLocal.remove();
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.billion.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "billion.cache")
+@Data
+public class CacheProperties {
+
+    private long localMaxSize = 1000; //每个缓存在本地保留的最大条目数
+
+    private Duration localTtl = Duration.ofMinutes(10); //本地缓存的有效期，错过失效广播时最多在此时间后看到变化
+
+    private Duration ttl = Duration.ofDays(1); //Redis缓存的有效期，清空缓存后旧版本的数据在此时间后由Redis删除；为0时不过期，旧版本的数据不会被删除
+
+    private String codec = "binary"; //写入Redis的格式：binary为紧凑二进制，jdk为JDK序列化，读取时两种格式都支持
+
+    private int compressThreshold = 1024; //二进制编码后超过该字节数时使用LZ4压缩
+
+}
@@ -9,6 +9,32 @@ import org.springframework.stereotype.Component;
 @Data
 public class OnnxProperties {
 
-    private String device; //设备
+    private String device = "cpu"; //设备，cpu或cuda
+
+    private String modelPath = "data/model/model_quant.onnx"; //模型文件路径
+
+    private int intraOpThreads = 0; //单个算子内部的并行线程数，0表示由ONNX Runtime决定
+
+    private int interOpThreads = 0; //算子之间的并行线程数，只在parallel执行模式下生效，0表示由ONNX Runtime决定
+
+    private String optLevel = "all"; //图优化级别：none、basic、extended、all
+
+    private String executionMode = "sequential"; //执行模式：sequential、parallel
+
+    private boolean cpuArena = true; //是否使用CPU内存池
+
+    private boolean memoryPattern = true; //是否根据输入形状预先规划内存
+
+    private int sessionPoolSize = 1; //会话数，多个会话可以同时推理
+
+    private long batchWindowMillis = 5; //推理请求的合批等待时间（毫秒）
+
+    private int maxBatchSize = 32; //单次推理的最大批大小，达到后立即推理
+
+    private String modelDir = "data/model/versions"; //新版本模型的目录，文件名为model_v{版本号}.onnx，为空时不检查
+
+    private boolean shadowMode = false; //影子模式：新版本模型只作为影子推理并统计，不替换当前模型
+
+    private double shadowSampleRate = 0.1; //影子模式下同时交给影子模型推理的请求比例
 
 }
@@ -0,0 +1,19 @@
+package com.billion.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "billion.order")
+@Data
+public class OrderProperties {
+
+    private long nodeId; //订单号生成器的节点id，多实例部署时每个实例必须不同（0~1023）
+
+    private Duration payTimeout = Duration.ofMinutes(15); //下单后未支付的超时时间，超时自动取消
+
+
+}
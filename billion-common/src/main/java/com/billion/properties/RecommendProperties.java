@@ -0,0 +1,30 @@
+package com.billion.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "billion.recommend")
+@Data
+public class RecommendProperties {
+
+    private int localCacheSize = 10000; //本地缓存的最大用户数
+
+    private Duration localCacheTtl = Duration.ofMinutes(5); //本地缓存的有效期，其他实例清除Redis缓存后，本实例最多在此时间后看到变化
+
+    private Duration cacheTtl = Duration.ofHours(1); //Redis缓存的有效期，切换模型后旧版本的结果在此时间后删除
+
+    private int historySize = 20; //每个用户保留的最近点单菜品数，即模型输入的最大长度
+
+    private int topK = 20; //推荐的菜品数
+
+    private int batchActiveDays = 30; //离线批量推荐的活跃用户范围：最近多少天下过单
+
+    private int batchSize = 256; //离线批量推荐单次推理的用户数
+
+    private Duration batchCacheTtl = Duration.ofHours(26); //离线推荐结果的缓存有效期，覆盖到下一次批量推荐
+
+}
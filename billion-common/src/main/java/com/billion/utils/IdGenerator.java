@@ -0,0 +1,13 @@
+package com.billion.utils;
+
+/**
+ * 分布式唯一id生成器
+ */
+public interface IdGenerator {
+
+    /**
+     * 生成下一个id，多实例之间不重复，并按生成时间递增
+     * @return
+     */
+    long nextId();
+}
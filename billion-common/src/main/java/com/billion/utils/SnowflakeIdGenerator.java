@@ -0,0 +1,59 @@
+package com.billion.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法id生成器
+ * id结构（共63位）：41位毫秒时间戳（相对EPOCH） + 10位节点id + 12位毫秒内序列号
+ * 同一节点内通过CAS无锁生成，时钟回拨或单毫秒内序列号用尽时借用下一毫秒，保证单调递增
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    //起始时间 2024-01-01 00:00:00 (UTC+8)
+    public static final long EPOCH = 1704038400000L;
+
+    private static final int NODE_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_NODE_ID = (1L << NODE_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+
+    //高位为相对EPOCH的毫秒数，低12位为该毫秒内的序列号
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点id必须在0到" + MAX_NODE_ID + "之间：" + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long next = state.updateAndGet(last -> Math.max(now, last + 1));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (timestamp << (NODE_ID_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * 从id中解析出生成时间（毫秒时间戳）
+     * @param id
+     * @return
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_ID_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /**
+     * 从id中解析出节点id
+     * @param id
+     * @return
+     */
+    public static long nodeIdOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
@@ -0,0 +1,20 @@
+package com.billion.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderStatusCountDTO implements Serializable {
+    //订单状态
+    private Integer status;
+
+    //订单数量
+    private Integer count;
+}
@@ -27,4 +27,7 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //倒序的手机号，按手机号片段搜索时由服务端填充，用于匹配尾号
+    private String phoneReversed;
+
 }
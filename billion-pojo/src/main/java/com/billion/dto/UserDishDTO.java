@@ -0,0 +1,20 @@
+package com.billion.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserDishDTO implements Serializable {
+    //用户id
+    private Long userId;
+
+    //菜品id
+    private Long dishId;
+}
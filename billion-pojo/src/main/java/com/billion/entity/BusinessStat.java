@@ -0,0 +1,37 @@
+package com.billion.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 营业数据汇总
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusinessStat implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //统计时段，按小时汇总时为整点时间，按天汇总时为当天0点
+    private LocalDateTime statTime;
+
+    //营业额
+    private BigDecimal turnover;
+
+    //有效订单数
+    private Integer validOrderCount;
+
+    //订单总数
+    private Integer totalOrderCount;
+
+    //新增用户数
+    private Integer newUserCount;
+}
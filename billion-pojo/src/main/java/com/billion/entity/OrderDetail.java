@@ -1,5 +1,7 @@
 package com.billion.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,7 +26,8 @@ public class OrderDetail implements Serializable {
     //名称
     private String name;
 
-    //订单id
+    //订单id，以字符串返回，避免前端丢失精度
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long orderId;
 
     //菜品id
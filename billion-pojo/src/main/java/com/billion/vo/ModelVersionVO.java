@@ -0,0 +1,20 @@
+package com.billion.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModelVersionVO implements Serializable {
+    //当前推荐模型的版本
+    private String version;
+
+    //影子推荐模型的版本，没有时为null
+    private String shadowVersion;
+}
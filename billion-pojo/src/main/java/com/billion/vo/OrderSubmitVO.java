@@ -1,5 +1,7 @@
 package com.billion.vo;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,7 +16,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class OrderSubmitVO implements Serializable {
-    //订单id
+    //订单id，以字符串返回，避免前端丢失精度
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     //订单号
     private String orderNumber;
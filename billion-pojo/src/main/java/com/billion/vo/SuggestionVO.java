@@ -0,0 +1,23 @@
+package com.billion.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionVO implements Serializable {
+    //菜品或套餐id
+    private Long id;
+
+    //类型 1菜品 2套餐
+    private Integer type;
+
+    //名称
+    private String name;
+}
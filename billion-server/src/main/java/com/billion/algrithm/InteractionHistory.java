@@ -0,0 +1,200 @@
+package com.billion.algrithm;
+
+import com.billion.dto.UserDishDTO;
+import com.billion.entity.Orders;
+import com.billion.mapper.OrderDetailMapper;
+import com.billion.properties.RecommendProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户点单历史，作为推荐模型的输入
+ * 每个用户在Redis列表中保存最近点过的若干个菜品id（按时间从旧到新），追加后裁剪为固定长度；
+ * 订单完成时追加，首次启动时根据已完成订单回填，推荐时不需要查询订单表
+ */
+@Component
+@Slf4j
+public class InteractionHistory {
+
+    //Redis中保存点单历史的key前缀，value为菜品id列表
+    public static final String KEY_PREFIX = "history:";
+
+    //回填完成标记
+    private static final String BACKFILL_KEY = "history:backfilled";
+
+    //回填时每批写入Redis的用户数
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderDetailMapper orderDetailMapper;
+    @Autowired
+    private RecommendProperties recommendProperties;
+    @Autowired
+    private RecommendationCache recommendationCache;
+
+    /**
+     * 查询用户最近点过的菜品id
+     * @param userId
+     * @return 按时间从旧到新排列，没有历史时返回空数组
+     */
+    public long[] get(Long userId) {
+        return toSequence(stringRedisTemplate.opsForList().range(KEY_PREFIX + userId, 0, -1));
+    }
+
+    /**
+     * 用一次管道查询多个用户最近点过的菜品id
+     * @param userIds
+     * @return 与userIds一一对应，没有历史的用户为空数组
+     */
+    @SuppressWarnings("unchecked")
+    public List<long[]> get(List<Long> userIds) {
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Long userId : userIds) {
+                    operations.opsForList().range(KEY_PREFIX + userId, 0, -1);
+                }
+                return null;
+            }
+        });
+
+        List<long[]> sequences = new ArrayList<>(userIds.size());
+        for (Object result : results) {
+            sequences.add(toSequence((List<String>) result));
+        }
+        return sequences;
+    }
+
+    /**
+     * 订单完成，将订单中的菜品追加到用户的点单历史，并清除用户的推荐结果缓存
+     * @param orderIds 已完成的订单id
+     */
+    public void append(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<String>> dishIdsByUser = new LinkedHashMap<>();
+        for (UserDishDTO userDish : orderDetailMapper.getUserDishByOrderIds(orderIds)) {
+            dishIdsByUser.computeIfAbsent(userDish.getUserId(), k -> new ArrayList<>())
+                    .add(userDish.getDishId().toString());
+        }
+        if (dishIdsByUser.isEmpty()) {
+            return;
+        }
+
+        write(dishIdsByUser, false);
+        dishIdsByUser.keySet().forEach(recommendationCache::evict);
+    }
+
+    /**
+     * 首次启动时根据已完成订单回填全部用户的点单历史，多个实例只有一个会执行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Boolean absent = stringRedisTemplate.opsForValue().setIfAbsent(BACKFILL_KEY, "1");
+        if (!Boolean.TRUE.equals(absent)) {
+            return;
+        }
+
+        log.info("开始回填用户点单历史");
+        int size = recommendProperties.getHistorySize();
+        Map<Long, List<String>> batch = new LinkedHashMap<>();
+        long[] userCount = new long[1];
+        //明细按用户、时间排序，每个用户只保留最后size个菜品
+        Deque<String> current = new ArrayDeque<>(size);
+        Long[] currentUserId = new Long[1];
+        try {
+            orderDetailMapper.streamUserDish(Orders.COMPLETED, context -> {
+                UserDishDTO userDish = context.getResultObject();
+                if (!userDish.getUserId().equals(currentUserId[0])) {
+                    if (currentUserId[0] != null) {
+                        batch.put(currentUserId[0], new ArrayList<>(current));
+                        userCount[0]++;
+                        if (batch.size() == BACKFILL_BATCH_SIZE) {
+                            write(batch, true);
+                            batch.clear();
+                        }
+                    }
+                    currentUserId[0] = userDish.getUserId();
+                    current.clear();
+                }
+                if (current.size() == size) {
+                    current.pollFirst();
+                }
+                current.addLast(userDish.getDishId().toString());
+            });
+            if (currentUserId[0] != null) {
+                batch.put(currentUserId[0], new ArrayList<>(current));
+                userCount[0]++;
+            }
+            if (!batch.isEmpty()) {
+                write(batch, true);
+            }
+        } catch (RuntimeException e) {
+            //回填失败，下次启动时重新执行
+            stringRedisTemplate.delete(BACKFILL_KEY);
+            throw e;
+        }
+        log.info("回填用户点单历史完成，用户数：{}", userCount[0]);
+    }
+
+    private static long[] toSequence(List<String> values) {
+        if (values == null) {
+            return new long[0];
+        }
+        long[] sequence = new long[values.size()];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = Long.parseLong(values.get(i));
+        }
+        return sequence;
+    }
+
+    /**
+     * 用一次管道写入多个用户的点单历史，追加后裁剪为固定长度
+     * @param dishIdsByUser 每个用户按时间从旧到新排列的菜品id
+     * @param prepend 回填的是更早的历史，插入到列表头部，不覆盖回填期间追加的记录
+     */
+    private void write(Map<Long, List<String>> dishIdsByUser, boolean prepend) {
+        long size = recommendProperties.getHistorySize();
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Map.Entry<Long, List<String>> entry : dishIdsByUser.entrySet()) {
+                    String key = KEY_PREFIX + entry.getKey();
+                    List<String> dishIds = entry.getValue();
+                    if (prepend) {
+                        //leftPushAll逐个插入头部，逆序插入后保持时间顺序
+                        List<String> reversed = new ArrayList<>(dishIds.size());
+                        for (int i = dishIds.size() - 1; i >= 0; i--) {
+                            reversed.add(dishIds.get(i));
+                        }
+                        operations.opsForList().leftPushAll(key, reversed);
+                    } else {
+                        operations.opsForList().rightPushAll(key, dishIds);
+                    }
+                    operations.opsForList().trim(key, -size, -1);
+                }
+                return null;
+            }
+        });
+    }
+}
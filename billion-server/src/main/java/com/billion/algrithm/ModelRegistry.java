@@ -0,0 +1,159 @@
+package com.billion.algrithm;
+
+import com.billion.properties.OnnxProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 推荐模型版本管理
+ * 定时检查模型目录，发现更高版本的模型时加载、预热后替换当前模型；影子模式下只作为影子模型，由管理端确认后切换。
+ * 确认切换的版本保存在Redis中，重启后以及其他实例检查时直接使用该版本作为当前模型
+ */
+@Component
+@Slf4j
+public class ModelRegistry {
+
+    //Redis中保存影子模式下已确认切换的模型版本号
+    public static final String PROMOTED_VERSION_KEY = "recommend:model:promoted";
+
+    //模型文件名，版本号为递增的整数
+    private static final Pattern MODEL_FILE = Pattern.compile("model_v(\\d+)\\.onnx");
+
+    //文件最后修改后至少经过的毫秒数，避免加载仍在复制中的文件
+    private static final long STABLE_MILLIS = 10 * 1000;
+
+    @Autowired
+    private Recommendation recommendation;
+    @Autowired
+    private OnnxProperties onnxProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    //当前模型的版本，0表示启动时加载的默认模型
+    private long currentVersion = 0;
+
+    //已加载的最高版本，包括影子模型
+    private long loadedVersion = 0;
+
+    //影子模型的版本，没有影子模型时为0
+    private long shadowVersion = 0;
+
+    //加载失败的版本，不再重试
+    private final Set<Long> failedVersions = new HashSet<>();
+
+    /**
+     * 检查模型目录，加载最高版本的新模型
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = 30 * 1000, initialDelay = 30 * 1000)
+    public synchronized void scan() {
+        String modelDir = onnxProperties.getModelDir();
+        if (modelDir == null || modelDir.isEmpty()) {
+            return;
+        }
+        File[] files = new File(modelDir).listFiles();
+        if (files == null) {
+            return;
+        }
+
+        if (onnxProperties.isShadowMode()) {
+            loadPromoted(modelDir);
+        }
+
+        File latest = null;
+        long latestVersion = loadedVersion;
+        long stableBefore = System.currentTimeMillis() - STABLE_MILLIS;
+        for (File file : files) {
+            Matcher matcher = MODEL_FILE.matcher(file.getName());
+            if (!matcher.matches() || !file.isFile() || file.lastModified() > stableBefore) {
+                continue;
+            }
+            long version = Long.parseLong(matcher.group(1));
+            if (version > latestVersion && !failedVersions.contains(version)) {
+                latest = file;
+                latestVersion = version;
+            }
+        }
+        if (latest == null) {
+            return;
+        }
+
+        try {
+            if (onnxProperties.isShadowMode()) {
+                recommendation.setShadowModel(versionName(latestVersion), latest.getPath());
+                shadowVersion = latestVersion;
+            } else {
+                recommendation.swapModel(versionName(latestVersion), latest.getPath());
+                currentVersion = latestVersion;
+            }
+            loadedVersion = latestVersion;
+        } catch (Exception e) {
+            //新模型有问题时继续使用当前模型
+            failedVersions.add(latestVersion);
+            log.error("加载推荐模型失败：{}", latest.getPath(), e);
+        }
+    }
+
+    /**
+     * 将影子模型切换为当前模型，并记录确认的版本
+     * @return 没有影子模型时返回false
+     */
+    public synchronized boolean promote() {
+        long version = shadowVersion;
+        if (!recommendation.promoteShadow()) {
+            return false;
+        }
+        shadowVersion = 0;
+        currentVersion = version;
+        stringRedisTemplate.opsForValue().set(PROMOTED_VERSION_KEY, String.valueOf(version));
+        return true;
+    }
+
+    /**
+     * 已确认的版本高于当前模型时（重启后或在其他实例上确认），直接加载为当前模型
+     * @param modelDir
+     */
+    private void loadPromoted(String modelDir) {
+        String value = stringRedisTemplate.opsForValue().get(PROMOTED_VERSION_KEY);
+        if (value == null) {
+            return;
+        }
+        long version = Long.parseLong(value);
+        if (version <= currentVersion || failedVersions.contains(version)) {
+            return;
+        }
+        File file = new File(modelDir, "model_v" + version + ".onnx");
+        if (!file.isFile()) {
+            return;
+        }
+        try {
+            if (version == shadowVersion) {
+                recommendation.promoteShadow();
+                shadowVersion = 0;
+            } else {
+                recommendation.swapModel(versionName(version), file.getPath());
+            }
+            currentVersion = version;
+            loadedVersion = Math.max(loadedVersion, version);
+            log.info("使用已确认的推荐模型：{}", versionName(version));
+        } catch (Exception e) {
+            failedVersions.add(version);
+            log.error("加载已确认的推荐模型失败：{}", file.getPath(), e);
+        }
+    }
+
+    private static String versionName(long version) {
+        return "v" + version;
+    }
+}
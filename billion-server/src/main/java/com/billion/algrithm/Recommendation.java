@@ -2,96 +2,632 @@ package com.billion.algrithm;
 
 import ai.onnxruntime.*;
 import com.billion.properties.OnnxProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 推荐模型推理
+ * 当前模型可以在运行中原子替换：新模型加载并预热后才切换，正在使用旧模型的推理完成后旧模型才释放；
+ * 影子模型按采样比例在后台对相同输入推理，统计耗时及与当前模型推荐结果的一致率
+ */
 @Component
+@Slf4j
 public class Recommendation {
+
+    private static final String INPUT_NAME = "inputs";
+
+    private static final String OUTPUT_NAME = "outputs";
+
+    //预热时的序列长度和每个会话的推理次数
+    private static final int WARMUP_LENGTH = 20;
+    private static final int WARMUP_ROUNDS = 3;
+
+    //比较影子模型时取前多少个推荐结果
+    private static final int SHADOW_TOP_K = 20;
+
     private OnnxProperties onnxProperties;
 
     private OrtEnvironment env;
 
-    private OrtSession session;
+    //会话数
+    private int sessionPoolSize;
+
+    //当前模型
+    private volatile Model model;
+
+    //影子模型，没有时为null
+    private volatile Model shadow;
+
+    //影子模型在单独的线程推理，队列满时丢弃，不影响在线请求
+    private final ThreadPoolExecutor shadowExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(64), r -> {
+                Thread thread = new Thread(r, "recommendation-shadow");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private final ShadowStats shadowStats = new ShadowStats();
+
+    //每个线程复用的输入输出缓冲区，使用堆外内存，推理时ONNX Runtime直接读写，不需要复制
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
 
     public Recommendation(OnnxProperties onnxProperties) throws OrtException {
         this.onnxProperties = onnxProperties;
         this.env = OrtEnvironment.getEnvironment();
-        this.session = env.createSession("data/model/model_quant.onnx", new OrtSession.SessionOptions());
+        this.sessionPoolSize = Math.max(1, onnxProperties.getSessionPoolSize());
+        this.model = loadModel("default", onnxProperties.getModelPath());
+    }
+
+    /**
+     * 加载并预热新模型，然后原子替换当前模型；旧模型在正在进行的推理完成后释放
+     * @param version
+     * @param modelPath
+     * @throws OrtException
+     */
+    public synchronized void swapModel(String version, String modelPath) throws OrtException {
+        Model newModel = loadModel(version, modelPath);
+        Model oldModel = model;
+        model = newModel;
+        log.info("切换推荐模型：{} -> {}", oldModel.version, newModel.version);
+        oldModel.release();
+    }
+
+    /**
+     * 加载并预热影子模型，替换原有的影子模型
+     * @param version
+     * @param modelPath
+     * @throws OrtException
+     */
+    public synchronized void setShadowModel(String version, String modelPath) throws OrtException {
+        Model newShadow = loadModel(version, modelPath);
+        Model oldShadow = shadow;
+        shadow = newShadow;
+        shadowStats.reset();
+        log.info("加载影子推荐模型：{}，采样比例：{}", newShadow.version, onnxProperties.getShadowSampleRate());
+        if (oldShadow != null) {
+            oldShadow.release();
+        }
+    }
+
+    /**
+     * 将影子模型切换为当前模型
+     * @return 没有影子模型时返回false
+     */
+    public synchronized boolean promoteShadow() {
+        Model newModel = shadow;
+        if (newModel == null) {
+            return false;
+        }
+        shadow = null;
+        Model oldModel = model;
+        model = newModel;
+        log.info("影子推荐模型转为当前模型：{} -> {}", oldModel.version, newModel.version);
+        oldModel.release();
+        return true;
+    }
+
+    public String getModelVersion() {
+        return model.version;
+    }
+
+    public String getShadowModelVersion() {
+        Model current = shadow;
+        return current != null ? current.version : null;
+    }
+
+    /**
+     * 根据配置创建会话参数
+     * @return
+     * @throws OrtException
+     */
+    private OrtSession.SessionOptions createSessionOptions() throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        if (onnxProperties.getIntraOpThreads() > 0) {
+            options.setIntraOpNumThreads(onnxProperties.getIntraOpThreads());
+        }
+        if (onnxProperties.getInterOpThreads() > 0) {
+            options.setInterOpNumThreads(onnxProperties.getInterOpThreads());
+        }
+        options.setOptimizationLevel(parseOptLevel(onnxProperties.getOptLevel()));
+        options.setExecutionMode("parallel".equalsIgnoreCase(onnxProperties.getExecutionMode())
+                ? OrtSession.SessionOptions.ExecutionMode.PARALLEL
+                : OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+        options.setCPUArenaAllocator(onnxProperties.isCpuArena());
+        options.setMemoryPatternOptimization(onnxProperties.isMemoryPattern());
+        if ("cuda".equalsIgnoreCase(onnxProperties.getDevice())) {
+            options.addCUDA(0);
+        }
+        return options;
+    }
+
+    private static OrtSession.SessionOptions.OptLevel parseOptLevel(String optLevel) {
+        if (optLevel == null) {
+            return OrtSession.SessionOptions.OptLevel.ALL_OPT;
+        }
+        switch (optLevel.toLowerCase()) {
+            case "none":
+                return OrtSession.SessionOptions.OptLevel.NO_OPT;
+            case "basic":
+                return OrtSession.SessionOptions.OptLevel.BASIC_OPT;
+            case "extended":
+                return OrtSession.SessionOptions.OptLevel.EXTENDED_OPT;
+            case "all":
+                return OrtSession.SessionOptions.OptLevel.ALL_OPT;
+            default:
+                throw new IllegalArgumentException("不支持的图优化级别：" + optLevel);
+        }
+    }
+
+    public int getSessionPoolSize() {
+        return sessionPoolSize;
+    }
+
+    /**
+     * 当前模型的类别数；模型可能在两次调用之间被替换，推理结果的类别数应根据输出的长度计算
+     * @return
+     */
+    public int getClassNum() {
+        return model.classNum;
     }
 
     public float[][] forward(long[][] inputs) {
+        int batchSize = inputs.length;
+        int length = inputs[0].length;
+        long[] flatInputs = new long[batchSize * length];
+        for (int i = 0; i < batchSize; i++) {
+            System.arraycopy(inputs[i], 0, flatInputs, i * length, length);
+        }
+
+        FloatBuffer outputs = forward(flatInputs, batchSize, length);
+        int classNum = outputs.limit() / batchSize;
+        float[][] batchArray = new float[batchSize][classNum];
+        for (int i = 0; i < batchSize; i++) {
+            outputs.position(i * classNum);
+            outputs.get(batchArray[i]);
+        }
+        return batchArray;
+    }
+
+    /**
+     * 推理，输入和输出都使用当前线程复用的堆外缓冲区，推理结束后立即释放本次创建的本地资源
+     *
+     * @param inputs 按行展开的[batchSize, length]输入，只读取前batchSize * length个元素
+     * @return 按行展开的[batchSize, classNum]得分，limit为batchSize * classNum，
+     * 为当前线程复用的缓冲区，在该线程下次推理前有效
+     */
+    public FloatBuffer forward(long[] inputs, int batchSize, int length) {
+        Model current = acquire();
         try {
-            int batchSize = inputs.length;
-            OnnxTensor tensor = OnnxTensor.createTensor(env, inputs);
-
-            Map<String, OnnxTensor> map = new HashMap<>();
-            map.put("inputs", tensor);
-            OrtSession.Result outputs = session.run(map);
-            for (Map.Entry<String, OnnxValue> r : outputs) {
-                OnnxValue resultValue = r.getValue();
-                OnnxTensor resultTensor = (OnnxTensor) resultValue;
-                float[] resultArray = resultTensor.getFloatBuffer().array();
-                int itemNum = resultArray.length / batchSize;
-                float[][] batchArray = new float[batchSize][itemNum];
-                for (int i = 0; i < batchSize; i++) {
-                    System.arraycopy(resultArray, i * itemNum, batchArray[i], 0, itemNum);
-                }
-                return batchArray;
+            long start = System.nanoTime();
+            FloatBuffer outputs = run(current, inputs, batchSize, length);
+            long elapsed = System.nanoTime() - start;
+
+            Model currentShadow = shadow;
+            if (currentShadow != null && ThreadLocalRandom.current().nextDouble() < onnxProperties.getShadowSampleRate()) {
+                submitShadow(currentShadow, inputs, batchSize, length, outputs, elapsed);
             }
+            return outputs;
+        } finally {
+            current.release();
+        }
+    }
+
+    /**
+     * 每分钟输出影子模型的统计数据
+     */
+    @Scheduled(fixedRate = 60 * 1000, initialDelay = 60 * 1000)
+    public void reportShadowStats() {
+        Model currentShadow = shadow;
+        if (currentShadow == null || shadowStats.rows.sum() == 0) {
+            return;
+        }
+        long batches = shadowStats.batches.sumThenReset();
+        long rows = shadowStats.rows.sumThenReset();
+        log.info("影子推荐模型：{}，采样批次：{}，样本数：{}，平均耗时：当前{}ms / 影子{}ms，首位一致率：{}，前{}个重合率：{}",
+                currentShadow.version, batches, rows,
+                String.format("%.2f", shadowStats.primaryNanos.sumThenReset() / 1e6 / batches),
+                String.format("%.2f", shadowStats.shadowNanos.sumThenReset() / 1e6 / batches),
+                String.format("%.3f", (double) shadowStats.top1Matches.sumThenReset() / rows),
+                SHADOW_TOP_K,
+                String.format("%.3f", (double) shadowStats.topKOverlap.sumThenReset() / shadowStats.topKTotal.sumThenReset()));
+    }
+
+    /**
+     * 增加当前模型的引用，替换与引用之间存在竞争时重新读取
+     * @return
+     */
+    private Model acquire() {
+        while (true) {
+            Model current = model;
+            if (current.retain()) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * 使用指定模型推理，输出写入当前线程的缓冲区
+     */
+    private FloatBuffer run(Model target, long[] inputs, int batchSize, int length) {
+        Buffers threadBuffers = buffers.get();
+        LongBuffer inputBuffer = threadBuffers.input(batchSize * length);
+        inputBuffer.put(inputs, 0, batchSize * length);
+        inputBuffer.flip();
+        FloatBuffer outputBuffer = threadBuffers.output(batchSize * target.classNum);
+
+        OrtSession session;
+        try {
+            session = target.sessions.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待推理会话时被中断", e);
+        }
+
+        try (OnnxTensor inputTensor = OnnxTensor.createTensor(env, inputBuffer, new long[]{batchSize, length});
+             OnnxTensor outputTensor = OnnxTensor.createTensor(env, outputBuffer, new long[]{batchSize, target.classNum});
+             OrtSession.Result result = session.run(Collections.singletonMap(INPUT_NAME, inputTensor),
+                     Collections.singletonMap(OUTPUT_NAME, outputTensor))) {
+            //输出直接写入outputBuffer
+            return outputBuffer;
         } catch (OrtException e) {
-            e.printStackTrace();
+            throw new IllegalStateException("模型推理失败", e);
+        } finally {
+            target.sessions.offer(session);
+        }
+    }
+
+    /**
+     * 复制输入和当前模型的推荐结果，交给影子线程推理并比较
+     */
+    private void submitShadow(Model target, long[] inputs, int batchSize, int length, FloatBuffer outputs, long primaryNanos) {
+        long[] shadowInputs = Arrays.copyOf(inputs, batchSize * length);
+        int classNum = outputs.limit() / batchSize;
+        int k = Math.min(SHADOW_TOP_K, classNum);
+        int[][] primaryTopK = new int[batchSize][k];
+        for (int i = 0; i < batchSize; i++) {
+            topK(outputs, i * classNum, classNum, k, primaryTopK[i]);
+        }
+        shadowExecutor.execute(() -> compareShadow(target, shadowInputs, batchSize, length, primaryTopK, primaryNanos));
+    }
+
+    private void compareShadow(Model target, long[] inputs, int batchSize, int length, int[][] primaryTopK, long primaryNanos) {
+        if (!target.retain()) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            FloatBuffer outputs = run(target, inputs, batchSize, length);
+            long elapsed = System.nanoTime() - start;
+
+            int classNum = target.classNum;
+            long top1Matches = 0;
+            long overlap = 0;
+            long total = 0;
+            for (int i = 0; i < batchSize; i++) {
+                int[] primary = primaryTopK[i];
+                int[] result = new int[Math.min(primary.length, classNum)];
+                topK(outputs, i * classNum, classNum, result.length, result);
+                if (result.length > 0 && primary.length > 0 && result[0] == primary[0]) {
+                    top1Matches++;
+                }
+                for (int id : result) {
+                    for (int primaryId : primary) {
+                        if (id == primaryId) {
+                            overlap++;
+                            break;
+                        }
+                    }
+                }
+                total += primary.length;
+            }
+            shadowStats.batches.increment();
+            shadowStats.rows.add(batchSize);
+            shadowStats.primaryNanos.add(primaryNanos);
+            shadowStats.shadowNanos.add(elapsed);
+            shadowStats.top1Matches.add(top1Matches);
+            shadowStats.topKOverlap.add(overlap);
+            shadowStats.topKTotal.add(total);
+        } catch (RuntimeException e) {
+            log.error("影子推荐模型推理失败：{}", target.version, e);
+        } finally {
+            target.release();
+        }
+    }
+
+    /**
+     * 加载模型：创建会话池，检查输出形状，用合成输入预热每个会话
+     * @param version
+     * @param modelPath
+     * @return
+     * @throws OrtException
+     */
+    private Model loadModel(String version, String modelPath) throws OrtException {
+        BlockingQueue<OrtSession> sessions = new ArrayBlockingQueue<>(sessionPoolSize);
+        try (OrtSession.SessionOptions options = createSessionOptions()) {
+            for (int i = 0; i < sessionPoolSize; i++) {
+                sessions.add(env.createSession(modelPath, options));
+            }
+        } catch (OrtException | RuntimeException e) {
+            closeSessions(sessions);
+            throw e;
+        }
+
+        Model newModel;
+        try {
+            NodeInfo outputNode = sessions.peek().getOutputInfo().get(OUTPUT_NAME);
+            if (outputNode == null || !sessions.peek().getInputInfo().containsKey(INPUT_NAME)) {
+                throw new IllegalStateException("模型的输入输出名称不是" + INPUT_NAME + "/" + OUTPUT_NAME + "：" + modelPath);
+            }
+            long[] shape = ((TensorInfo) outputNode.getInfo()).getShape();
+            if (shape.length != 2 || shape[1] <= 0) {
+                throw new IllegalStateException("模型的输出形状应为[batch, classNum]：" + Arrays.toString(shape));
+            }
+            newModel = new Model(version, sessions, (int) shape[1]);
+            warmup(newModel);
+        } catch (RuntimeException e) {
+            closeSessions(sessions);
+            throw e;
+        }
+        log.info("加载推荐模型：{}，版本：{}，会话数：{}，类别数：{}", modelPath, version, sessionPoolSize, newModel.classNum);
+        return newModel;
+    }
+
+    /**
+     * 用随机序列在每个会话上按单条和最大批大小推理几次，完成内存分配和图初始化，避免切换后的首批请求变慢
+     * @param target
+     */
+    private void warmup(Model target) {
+        Random random = new Random(42);
+        int[] batchSizes = {1, Math.max(1, onnxProperties.getMaxBatchSize())};
+        long start = System.nanoTime();
+        for (int batchSize : batchSizes) {
+            long[] inputs = new long[batchSize * WARMUP_LENGTH];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = 1 + random.nextInt(Math.max(1, target.classNum - 1));
+            }
+            //每轮依次占用全部会话，保证每个会话都被预热
+            for (int round = 0; round < WARMUP_ROUNDS * sessionPoolSize; round++) {
+                run(target, inputs, batchSize, WARMUP_LENGTH);
+            }
+        }
+        log.info("预热推荐模型：{}，耗时：{}ms", target.version, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void closeSessions(BlockingQueue<OrtSession> sessions) {
+        for (OrtSession session : sessions) {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                log.error("关闭推理会话失败", e);
+            }
         }
-        return null;
     }
 
     public int[][] getRecommendation(long[][] inputs) {
-        float[][] batchOutputs = this.forward(inputs);
-        int batchDim = batchOutputs.length;
-        int classDim = batchOutputs[0].length;
-        int[][] result = new int[batchDim][classDim];
-        for (int i = 0; i < batchDim; i++) {
-            result[i] = argSort(batchOutputs[i], true);
+        return getRecommendation(inputs, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 返回每个样本得分最高的k个类别，按得分从高到低排列
+     */
+    public int[][] getRecommendation(long[][] inputs, int k) {
+        int batchSize = inputs.length;
+        int length = inputs[0].length;
+        long[] flatInputs = new long[batchSize * length];
+        for (int i = 0; i < batchSize; i++) {
+            System.arraycopy(inputs[i], 0, flatInputs, i * length, length);
+        }
+
+        FloatBuffer outputs = forward(flatInputs, batchSize, length);
+        int classNum = outputs.limit() / batchSize;
+        int topK = Math.min(k, classNum);
+        int[][] result = new int[batchSize][topK];
+        for (int i = 0; i < batchSize; i++) {
+            topK(outputs, i * classNum, classNum, topK, result[i]);
         }
         return result;
     }
 
+    @PreDestroy
+    public void destroy() {
+        shadowExecutor.shutdownNow();
+        Model currentShadow = shadow;
+        shadow = null;
+        if (currentShadow != null) {
+            currentShadow.release();
+        }
+        model.release();
+    }
 
-    private int[] argSort(float[] arr, boolean desc) {
-        float temp;
-        int index;
-        int k = arr.length;
-        int[] Index = new int[k];
-        for (int i = 0; i < k; i++) {
-            Index[i] = i;
+    /**
+     * 选出得分最高的k个下标写入out，按得分从高到低排列，得分相同时下标小的在前
+     * 用out的前k个位置维护大小为k的最小堆，时间O(n log k)，不修改scores，不分配内存
+     *
+     * @return 写入的下标个数，即min(k, scores.length)
+     */
+    public static int topK(float[] scores, int k, int[] out) {
+        return topK(FloatBuffer.wrap(scores), 0, scores.length, k, out);
+    }
+
+    /**
+     * 从scores的[offset, offset + length)中选出得分最高的k个，写入out的是相对offset的下标
+     *
+     * @return 写入的下标个数，即min(k, length)
+     */
+    public static int topK(FloatBuffer scores, int offset, int length, int k, int[] out) {
+        int size = Math.min(k, length);
+        if (size <= 0) {
+            return 0;
         }
 
-        for (int i = 0; i < arr.length; i++) {
-            for (int j = 0; j < arr.length - i - 1; j++) {
-                if (desc) {
-                    if (arr[j] < arr[j + 1]) {
-                        temp = arr[j];
-                        arr[j] = arr[j + 1];
-                        arr[j + 1] = temp;
+        //堆顶是当前前k个中得分最低的
+        for (int i = 0; i < size; i++) {
+            out[i] = i;
+            siftUp(scores, offset, out, i);
+        }
+        for (int i = size; i < length; i++) {
+            if (better(scores, offset, i, out[0])) {
+                out[0] = i;
+                siftDown(scores, offset, out, 0, size);
+            }
+        }
 
-                        index = Index[j];
-                        Index[j] = Index[j + 1];
-                        Index[j + 1] = index;
-                    }
-                } else {
-                    if (arr[j] > arr[j + 1]) {
-                        temp = arr[j];
-                        arr[j] = arr[j + 1];
-                        arr[j + 1] = temp;
-
-                        index = Index[j];
-                        Index[j] = Index[j + 1];
-                        Index[j + 1] = index;
-                    }
+        //依次把堆顶换到末尾，得到从高到低的顺序
+        for (int end = size - 1; end > 0; end--) {
+            int temp = out[0];
+            out[0] = out[end];
+            out[end] = temp;
+            siftDown(scores, offset, out, 0, end);
+        }
+        return size;
+    }
+
+    private static boolean better(FloatBuffer scores, int offset, int i, int j) {
+        float si = scores.get(offset + i);
+        float sj = scores.get(offset + j);
+        return si > sj || (si == sj && i < j);
+    }
+
+    private static void siftUp(FloatBuffer scores, int offset, int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(scores, offset, heap[parent], heap[i])) {
+                break;
+            }
+            int temp = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = temp;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(FloatBuffer scores, int offset, int[] heap, int i, int size) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && better(scores, offset, heap[worst], heap[left])) {
+                worst = left;
+            }
+            if (right < size && better(scores, offset, heap[worst], heap[right])) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            int temp = heap[worst];
+            heap[worst] = heap[i];
+            heap[i] = temp;
+            i = worst;
+        }
+    }
+
+    /**
+     * 一个版本的模型及其会话池
+     * 引用计数的初始值1代表"仍在使用中"，被替换时释放这一份；每次推理前后各增减一次，计数归零时关闭会话
+     */
+    private static class Model {
+        private final String version;
+        private final BlockingQueue<OrtSession> sessions;
+        private final int classNum;
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        private Model(String version, BlockingQueue<OrtSession> sessions, int classNum) {
+            this.version = version;
+            this.sessions = sessions;
+            this.classNum = classNum;
+        }
+
+        /**
+         * 增加引用，模型已关闭时返回false
+         */
+        private boolean retain() {
+            while (true) {
+                int count = refs.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(count, count + 1)) {
+                    return true;
                 }
             }
         }
-        return Index;
+
+        private void release() {
+            if (refs.decrementAndGet() == 0) {
+                //此时没有推理在使用会话，会话都已归还
+                closeSessions(sessions);
+                log.info("释放推荐模型：{}", version);
+            }
+        }
+    }
+
+    /**
+     * 影子模型的累计统计
+     */
+    private static class ShadowStats {
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder primaryNanos = new LongAdder();
+        private final LongAdder shadowNanos = new LongAdder();
+        private final LongAdder top1Matches = new LongAdder();
+        private final LongAdder topKOverlap = new LongAdder();
+        private final LongAdder topKTotal = new LongAdder();
+
+        private void reset() {
+            batches.reset();
+            rows.reset();
+            primaryNanos.reset();
+            shadowNanos.reset();
+            top1Matches.reset();
+            topKOverlap.reset();
+            topKTotal.reset();
+        }
+    }
+
+    /**
+     * 单个线程的输入输出缓冲区，容量不足时按2的幂扩容
+     */
+    private static class Buffers {
+        private LongBuffer input = LongBuffer.allocate(0);
+        private FloatBuffer output = FloatBuffer.allocate(0);
+
+        private LongBuffer input(int size) {
+            if (input.capacity() < size) {
+                input = ByteBuffer.allocateDirect(capacity(size) * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+            input.clear();
+            return input;
+        }
+
+        private FloatBuffer output(int size) {
+            if (output.capacity() < size) {
+                output = ByteBuffer.allocateDirect(capacity(size) * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            }
+            output.clear();
+            output.limit(size);
+            return output;
+        }
+
+        private static int capacity(int size) {
+            return Math.max(1, Integer.highestOneBit(size - 1) << 1);
+        }
     }
 }
@@ -0,0 +1,241 @@
+package com.billion.algrithm;
+
+import com.billion.properties.OnnxProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 推荐请求合批推理
+ * 并发的推荐请求先进入队列，由单独的线程在等待时间到达或请求数达到最大批大小时取出，
+ * 序列长度相同的请求合成一个batch推理，再把每行结果交还给对应的请求
+ */
+@Component
+@Slf4j
+public class RecommendationBatcher {
+
+    //调用方等待推理结果的最长时间（毫秒）
+    private static final long REQUEST_TIMEOUT_MILLIS = 3000;
+
+    //每个批大小保留的最近请求耗时个数，用于计算p99
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private final Recommendation recommendation;
+
+    private final long batchWindowNanos;
+
+    private final int maxBatchSize;
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    //合批线程，每个线程使用一个推理会话
+    private final List<Thread> workers = new ArrayList<>();
+
+    //按批大小统计的推理数据
+    private final Map<Integer, BatchStats> stats = new ConcurrentSkipListMap<>();
+
+    private volatile long statsStart = System.nanoTime();
+
+    public RecommendationBatcher(Recommendation recommendation, OnnxProperties onnxProperties) {
+        this.recommendation = recommendation;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(onnxProperties.getBatchWindowMillis());
+        this.maxBatchSize = onnxProperties.getMaxBatchSize();
+        for (int i = 0; i < recommendation.getSessionPoolSize(); i++) {
+            Thread worker = new Thread(this::run, "recommendation-batcher-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * 推荐得分最高的k个菜品，阻塞直到所在的batch推理完成
+     * @param sequence 用户最近点过的菜品id，按时间先后排列，不能为空
+     * @param k
+     * @return 菜品id，按得分从高到低排列
+     */
+    public int[] recommend(long[] sequence, int k) {
+        if (sequence.length == 0) {
+            throw new IllegalArgumentException("推荐序列不能为空");
+        }
+        Request request = new Request(sequence, k);
+        queue.offer(request);
+        try {
+            return request.future.get(REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("推荐请求被中断", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("推荐请求失败", e);
+        }
+    }
+
+    /**
+     * 定期输出各批大小的吞吐量和p99耗时，并开始新的统计周期
+     */
+    @Scheduled(fixedRate = 60000, initialDelay = 60000)
+    public void reportStats() {
+        long now = System.nanoTime();
+        double seconds = (now - statsStart) / 1e9;
+        statsStart = now;
+        for (Map.Entry<Integer, BatchStats> entry : stats.entrySet()) {
+            BatchStats batchStats = entry.getValue();
+            synchronized (batchStats) {
+                if (batchStats.requests == 0) {
+                    continue;
+                }
+                log.info("推荐推理统计，批大小：{}，批次数：{}，吞吐量：{}次/秒，p99耗时：{}ms",
+                        entry.getKey(), batchStats.batches, String.format("%.1f", batchStats.requests / seconds),
+                        String.format("%.2f", batchStats.p99Nanos() / 1e6));
+                batchStats.reset();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        //按行展开的批输入，每个线程复用
+        long[] inputs = new long[0];
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                //等待第一个请求，之后在合批等待时间内继续收集
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + batchWindowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Request request = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (request == null) {
+                        break;
+                    }
+                    batch.add(request);
+                }
+                inputs = process(batch, inputs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 将取出的请求按序列长度分组，每组推理一次
+     * 模型使用绝对位置编码且没有padding mask，补位的id同样参与注意力计算并改变真实id的位置，
+     * 长度不同的序列不能补齐后合批，否则推荐结果会随同批的其他请求变化
+     * @param batch
+     * @param inputs 上次使用的输入数组，容量足够时复用
+     * @return 本次使用的输入数组
+     */
+    private long[] process(List<Request> batch, long[] inputs) {
+        Map<Integer, List<Request>> groups = new LinkedHashMap<>();
+        for (Request request : batch) {
+            groups.computeIfAbsent(request.sequence.length, length -> new ArrayList<>()).add(request);
+        }
+        for (Map.Entry<Integer, List<Request>> group : groups.entrySet()) {
+            inputs = infer(group.getValue(), group.getKey(), inputs);
+        }
+        return inputs;
+    }
+
+    /**
+     * 一组序列长度相同的请求按行拼接后推理，结果按行交还给请求
+     * @param batch
+     * @param length 序列长度
+     * @param inputs 上次使用的输入数组，容量足够时复用
+     * @return 本次使用的输入数组
+     */
+    private long[] infer(List<Request> batch, int length, long[] inputs) {
+        try {
+            if (inputs.length < batch.size() * length) {
+                inputs = new long[maxBatchSize * length];
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                System.arraycopy(batch.get(i).sequence, 0, inputs, i * length, length);
+            }
+
+            //得分位于工作线程复用的缓冲区中，直接从中选出前k个
+            FloatBuffer outputs = recommendation.forward(inputs, batch.size(), length);
+            //模型可能已被替换，类别数以本次输出为准
+            int classNum = outputs.limit() / batch.size();
+
+            long end = System.nanoTime();
+            BatchStats batchStats = stats.computeIfAbsent(batch.size(), size -> new BatchStats());
+            for (int i = 0; i < batch.size(); i++) {
+                Request request = batch.get(i);
+                int[] result = new int[Math.min(request.k, classNum)];
+                Recommendation.topK(outputs, i * classNum, classNum, result.length, result);
+                request.future.complete(result);
+            }
+            synchronized (batchStats) {
+                batchStats.batches++;
+                for (Request request : batch) {
+                    batchStats.record(end - request.createTime);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("推荐推理失败，批大小：{}", batch.size(), e);
+            for (Request request : batch) {
+                request.future.completeExceptionally(e);
+            }
+        }
+        return inputs;
+    }
+
+    private static class Request {
+        private final long[] sequence;
+        private final int k;
+        private final long createTime = System.nanoTime();
+        private final CompletableFuture<int[]> future = new CompletableFuture<>();
+
+        private Request(long[] sequence, int k) {
+            this.sequence = sequence;
+            this.k = k;
+        }
+    }
+
+    /**
+     * 单个批大小的统计数据，由synchronized保护
+     */
+    private static class BatchStats {
+        private long batches;
+        private long requests;
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+
+        private void record(long latencyNanos) {
+            latencies[(int) (requests % LATENCY_SAMPLES)] = latencyNanos;
+            requests++;
+        }
+
+        private long p99Nanos() {
+            int size = (int) Math.min(requests, LATENCY_SAMPLES);
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, (int) Math.ceil(size * 0.99) - 1)];
+        }
+
+        private void reset() {
+            batches = 0;
+            requests = 0;
+        }
+    }
+}
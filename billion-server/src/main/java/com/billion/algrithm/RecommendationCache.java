@@ -0,0 +1,174 @@
+package com.billion.algrithm;
+
+import com.billion.cache.TwoLevelCacheManager;
+import com.billion.properties.RecommendProperties;
+import com.billion.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 用户推荐结果缓存，保存按得分排序的菜品id
+ * 本地LRU缓存在前，Redis缓存在后；用户的点单历史变化时清除，并广播给其他实例清除本地缓存。key中包含模型版本，切换模型后旧版本的结果不再被读取
+ */
+@Component
+@Slf4j
+public class RecommendationCache {
+
+    //Redis中缓存推荐结果的key前缀，完整的key为recommend:{模型版本}:{用户id}，value为逗号分隔的菜品id
+    public static final String KEY_PREFIX = "recommend:";
+
+    //广播本地缓存失效时使用的名称，key为用户id
+    public static final String INVALIDATION_NAME = "recommendation";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private Recommendation recommendation;
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    private final RecommendProperties recommendProperties;
+
+    //按访问顺序排列，超过容量时淘汰最久未访问的用户
+    private final Map<Long, Entry> localCache;
+
+    public RecommendationCache(RecommendProperties recommendProperties) {
+        this.recommendProperties = recommendProperties;
+        int maxSize = recommendProperties.getLocalCacheSize();
+        this.localCache = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 收到其他实例的失效通知时清除本地缓存
+     */
+    @PostConstruct
+    public void init() {
+        cacheManager.addEvictListener(INVALIDATION_NAME, userId -> evictLocal(Long.valueOf(userId)));
+    }
+
+    /**
+     * 查询用户的推荐结果
+     * @param userId
+     * @return 没有缓存时返回null
+     */
+    public int[] get(Long userId) {
+        long now = System.currentTimeMillis();
+        String version = recommendation.getModelVersion();
+        synchronized (localCache) {
+            Entry entry = localCache.get(userId);
+            if (entry != null) {
+                if (entry.expireTime > now && entry.version.equals(version)) {
+                    return entry.dishIds;
+                }
+                localCache.remove(userId);
+            }
+        }
+
+        String value = stringRedisTemplate.opsForValue().get(key(version, userId));
+        if (value == null) {
+            return null;
+        }
+        int[] dishIds = decode(value);
+        putLocal(userId, dishIds, version, now);
+        return dishIds;
+    }
+
+    /**
+     * 缓存用户的推荐结果，使用默认有效期
+     * @param userId
+     * @param dishIds
+     */
+    public void put(Long userId, int[] dishIds) {
+        put(userId, dishIds, recommendProperties.getCacheTtl());
+    }
+
+    /**
+     * 缓存用户的推荐结果
+     * @param userId
+     * @param dishIds
+     * @param ttl Redis缓存的有效期
+     */
+    public void put(Long userId, int[] dishIds, Duration ttl) {
+        String version = recommendation.getModelVersion();
+        stringRedisTemplate.opsForValue().set(key(version, userId), encode(dishIds), ttl);
+        putLocal(userId, dishIds, version, System.currentTimeMillis());
+    }
+
+    /**
+     * 用户的点单历史变化，清除推荐结果；在事务中调用时，事务提交后再清除，避免并发请求用旧的历史重新填充缓存
+     * @param userId
+     */
+    public void evict(Long userId) {
+        TransactionUtils.afterCommit(() -> doEvict(userId));
+    }
+
+    private void doEvict(Long userId) {
+        evictLocal(userId);
+        stringRedisTemplate.delete(key(recommendation.getModelVersion(), userId));
+        cacheManager.publishEvict(INVALIDATION_NAME, userId.toString());
+    }
+
+    private void evictLocal(Long userId) {
+        synchronized (localCache) {
+            localCache.remove(userId);
+        }
+    }
+
+    private void putLocal(Long userId, int[] dishIds, String version, long now) {
+        long expireTime = now + recommendProperties.getLocalCacheTtl().toMillis();
+        synchronized (localCache) {
+            localCache.put(userId, new Entry(dishIds, version, expireTime));
+        }
+    }
+
+    private static String key(String version, Long userId) {
+        return KEY_PREFIX + version + ":" + userId;
+    }
+
+    private static String encode(int[] dishIds) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < dishIds.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(dishIds[i]);
+        }
+        return sb.toString();
+    }
+
+    private static int[] decode(String value) {
+        if (value.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = value.split(",");
+        int[] dishIds = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            dishIds[i] = Integer.parseInt(parts[i]);
+        }
+        return dishIds;
+    }
+
+    private static class Entry {
+        private final int[] dishIds;
+        private final String version;
+        private final long expireTime;
+
+        private Entry(int[] dishIds, String version, long expireTime) {
+            this.dishIds = dishIds;
+            this.version = version;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,676 @@
+package com.billion.cache;
+
+import org.springframework.cache.support.NullValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存值的紧凑二进制编码，不含格式头，格式版本和压缩由BinaryRedisSerializer处理
+ * 每个值前有1字节类型标记；对象按字段编码，类名和字段名在一份数据中只写一次，之后的同类对象只写类的序号；
+ * 重复出现的字符串只写一次，之后只写序号。解码时按字段名匹配本地类的字段，两端的类增删字段不影响读取
+ * 对象按树形编码，不保留共享引用；集合解码为ArrayList、LinkedHashSet、LinkedHashMap，赋给字段时转换为字段声明的集合类型；
+ * 没有无参构造方法、自定义了序列化方法的类、带比较器的有序集合以及其他不支持的类型，嵌入JDK序列化的结果
+ */
+public class BinaryCodec {
+
+    //类型标记
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int DOUBLE = 5;
+    private static final int STRING = 6;
+    private static final int STRING_REF = 7;
+    private static final int DECIMAL = 8;
+    private static final int DATE_TIME = 9;
+    private static final int DATE = 10;
+    private static final int BYTES = 11;
+    private static final int LIST = 12;
+    private static final int SET = 13;
+    private static final int MAP = 14;
+    private static final int ENUM = 15;
+    private static final int CLASS_DEF = 16;
+    private static final int OBJECT = 17;
+    private static final int NULL_VALUE = 18;
+    private static final int SERIALIZED = 19;
+
+    //自定义了序列化行为的方法名，声明了这些方法的类使用JDK序列化
+    private static final List<String> SERIALIZATION_METHODS = Arrays.asList("writeObject", "readObject", "writeReplace", "readResolve");
+
+    //集合字段声明为接口或抽象类时，解码使用的实现类，按顺序取第一个可以赋值的
+    private static final List<Class<?>> CONTAINER_TYPES = Arrays.asList(ArrayList.class, LinkedHashSet.class, TreeSet.class,
+            ArrayDeque.class, LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class);
+
+    //对象嵌套的最大深度，超过时说明存在循环引用
+    private static final int MAX_DEPTH = 64;
+
+    //解码时表示字段值无法赋给本地字段，保留字段默认值
+    private static final Object SKIP = new Object();
+
+    private final ClassLoader classLoader;
+
+    //编码用的类信息，不能按字段编码的类为空
+    private final ConcurrentMap<Class<?>, Optional<ClassInfo>> classInfos = new ConcurrentHashMap<>();
+
+    //解码用的字段映射，key为类名和编码端的字段名
+    private final ConcurrentMap<String, ClassInfo> decodePlans = new ConcurrentHashMap<>();
+
+    public BinaryCodec(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * 编码
+     * @param value
+     * @return
+     * @throws IllegalArgumentException 存在循环引用或无法序列化的值
+     */
+    public byte[] encode(Object value) {
+        Writer writer = new Writer();
+        writer.write(value, 0);
+        return writer.toByteArray();
+    }
+
+    /**
+     * 从指定位置开始解码
+     * @param bytes
+     * @param offset
+     * @return
+     * @throws IllegalArgumentException 数据损坏或类不存在
+     */
+    public Object decode(byte[] bytes, int offset) {
+        try {
+            return new Reader(bytes, offset).read();
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException | ReflectiveOperationException e) {
+            throw new IllegalArgumentException("解码缓存数据失败", e);
+        }
+    }
+
+    private Optional<ClassInfo> classInfo(Class<?> type) {
+        return classInfos.computeIfAbsent(type, t -> Optional.ofNullable(ClassInfo.of(t)));
+    }
+
+    /**
+     * 编码端的字段按名称对应到本地类的字段，本地不存在的字段为null
+     */
+    private ClassInfo decodePlan(String className, String[] names) throws ClassNotFoundException {
+        String signature = className + ":" + String.join(",", names);
+        ClassInfo plan = decodePlans.get(signature);
+        if (plan != null) {
+            return plan;
+        }
+        Class<?> type = Class.forName(className, false, classLoader);
+        ClassInfo local = classInfo(type)
+                .orElseThrow(() -> new ClassNotFoundException("不能按字段解码的类：" + className));
+        Field[] fields = new Field[names.length];
+        for (int i = 0; i < names.length; i++) {
+            fields[i] = local.field(names[i]);
+        }
+        plan = new ClassInfo(local.constructor, fields, names);
+        decodePlans.put(signature, plan);
+        return plan;
+    }
+
+    /**
+     * 可以按字段编码的类：构造方法和参与编码的字段
+     */
+    private static class ClassInfo {
+
+        private final Constructor<?> constructor;
+
+        private final Field[] fields;
+
+        private final String[] names;
+
+        private ClassInfo(Constructor<?> constructor, Field[] fields, String[] names) {
+            this.constructor = constructor;
+            this.fields = fields;
+            this.names = names;
+        }
+
+        /**
+         * JDK自带的类、数组、枚举、没有无参构造方法或自定义了序列化方法的类不能按字段编码
+         * @param type
+         * @return
+         */
+        static ClassInfo of(Class<?> type) {
+            if (type.isArray() || type.isEnum() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                    || type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+                return null;
+            }
+            Constructor<?> constructor;
+            try {
+                constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return null;
+            }
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                if (hasSerializationMethod(c)) {
+                    return null;
+                }
+                hierarchy.add(0, c);
+            }
+            List<Field> fields = new ArrayList<>();
+            Set<String> names = new LinkedHashSet<>();
+            for (Class<?> c : hierarchy) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    //父类和子类存在同名字段时无法按名称区分
+                    if (!names.add(field.getName())) {
+                        return null;
+                    }
+                    //解码时无法构造字段声明的集合类型
+                    if (isContainer(field.getType()) && newContainer(field.getType()) == null) {
+                        return null;
+                    }
+                    try {
+                        field.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        return null;
+                    }
+                    fields.add(field);
+                }
+            }
+            return new ClassInfo(constructor, fields.toArray(new Field[0]), names.toArray(new String[0]));
+        }
+
+        private static boolean hasSerializationMethod(Class<?> c) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (SERIALIZATION_METHODS.contains(method.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Field field(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return fields[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private class Writer {
+
+        private byte[] buf = new byte[256];
+
+        private int pos;
+
+        private final Map<Class<?>, Integer> classIndexes = new IdentityHashMap<>();
+
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+        void write(Object value, int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("对象嵌套过深或存在循环引用");
+            }
+            if (value == null) {
+                writeByte(NULL);
+            } else if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof Integer) {
+                writeByte(INT);
+                writeVarLong(zigzag((Integer) value));
+            } else if (value instanceof Long) {
+                writeByte(LONG);
+                writeVarLong(zigzag((Long) value));
+            } else if (value instanceof Boolean) {
+                writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Double) {
+                writeByte(DOUBLE);
+                writeFixedLong(Double.doubleToLongBits((Double) value));
+            } else if (value instanceof BigDecimal) {
+                BigDecimal decimal = (BigDecimal) value;
+                writeByte(DECIMAL);
+                writeVarLong(zigzag(decimal.scale()));
+                writeBytes(decimal.unscaledValue().toByteArray());
+            } else if (value instanceof LocalDateTime) {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                writeByte(DATE_TIME);
+                writeVarLong(zigzag(dateTime.toEpochSecond(ZoneOffset.UTC)));
+                writeVarLong(dateTime.getNano());
+            } else if (value instanceof LocalDate) {
+                writeByte(DATE);
+                writeVarLong(zigzag(((LocalDate) value).toEpochDay()));
+            } else if (value instanceof byte[]) {
+                writeByte(BYTES);
+                writeBytes((byte[]) value);
+            } else if (value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null
+                    || value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null) {
+                //解码时无法还原比较器
+                writeByte(SERIALIZED);
+                writeBytes(serialize(value));
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                writeByte(value instanceof Set ? SET : LIST);
+                writeVarLong(collection.size());
+                for (Object element : collection) {
+                    write(element, depth + 1);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                writeByte(MAP);
+                writeVarLong(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    write(entry.getKey(), depth + 1);
+                    write(entry.getValue(), depth + 1);
+                }
+            } else if (value instanceof Enum) {
+                writeByte(ENUM);
+                writeString(((Enum<?>) value).getDeclaringClass().getName());
+                writeString(((Enum<?>) value).name());
+            } else if (value == NullValue.INSTANCE) {
+                writeByte(NULL_VALUE);
+            } else {
+                writeObject(value, depth);
+            }
+        }
+
+        private void writeObject(Object value, int depth) {
+            Optional<ClassInfo> info = classInfo(value.getClass());
+            if (!info.isPresent()) {
+                writeByte(SERIALIZED);
+                writeBytes(serialize(value));
+                return;
+            }
+            ClassInfo classInfo = info.get();
+            Integer index = classIndexes.get(value.getClass());
+            if (index == null) {
+                classIndexes.put(value.getClass(), classIndexes.size());
+                writeByte(CLASS_DEF);
+                writeString(value.getClass().getName());
+                writeVarLong(classInfo.names.length);
+                for (String name : classInfo.names) {
+                    writeString(name);
+                }
+            } else {
+                writeByte(OBJECT);
+                writeVarLong(index);
+            }
+            try {
+                for (Field field : classInfo.fields) {
+                    write(field.get(value), depth + 1);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        private void writeString(String value) {
+            Integer index = stringIndexes.get(value);
+            if (index != null) {
+                writeByte(STRING_REF);
+                writeVarLong(index);
+                return;
+            }
+            stringIndexes.put(value, stringIndexes.size());
+            writeByte(STRING);
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        private void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        private void writeFixedLong(long value) {
+            ensure(8);
+            for (int i = 56; i >= 0; i -= 8) {
+                buf[pos++] = (byte) (value >>> i);
+            }
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) {
+                byte[] bigger = new byte[Math.max(buf.length * 2, pos + n)];
+                System.arraycopy(buf, 0, bigger, 0, pos);
+                buf = bigger;
+            }
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[pos];
+            System.arraycopy(buf, 0, bytes, 0, pos);
+            return bytes;
+        }
+    }
+
+    private class Reader {
+
+        private final byte[] buf;
+
+        private int pos;
+
+        private final List<ClassInfo> classes = new ArrayList<>();
+
+        private final List<String> strings = new ArrayList<>();
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        Object read() throws ReflectiveOperationException {
+            int tag = buf[pos++];
+            switch (tag) {
+                case NULL:
+                    return null;
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case INT:
+                    return (int) unzigzag(readVarLong());
+                case LONG:
+                    return unzigzag(readVarLong());
+                case DOUBLE:
+                    return Double.longBitsToDouble(readFixedLong());
+                case STRING:
+                case STRING_REF:
+                    return readString(tag);
+                case DECIMAL:
+                    int scale = (int) unzigzag(readVarLong());
+                    return new BigDecimal(new BigInteger(readBytes()), scale);
+                case DATE_TIME:
+                    long epochSecond = unzigzag(readVarLong());
+                    return LocalDateTime.ofEpochSecond(epochSecond, (int) readVarLong(), ZoneOffset.UTC);
+                case DATE:
+                    return LocalDate.ofEpochDay(unzigzag(readVarLong()));
+                case BYTES:
+                    return readBytes();
+                case LIST:
+                case SET:
+                    int size = (int) readVarLong();
+                    Collection<Object> collection = tag == LIST ? new ArrayList<>(size) : new LinkedHashSet<>(size * 2);
+                    for (int i = 0; i < size; i++) {
+                        collection.add(read());
+                    }
+                    return collection;
+                case MAP:
+                    int entries = (int) readVarLong();
+                    Map<Object, Object> map = new LinkedHashMap<>(entries * 2);
+                    for (int i = 0; i < entries; i++) {
+                        map.put(read(), read());
+                    }
+                    return map;
+                case ENUM:
+                    return readEnum();
+                case CLASS_DEF:
+                    String className = readString(buf[pos++]);
+                    String[] names = new String[(int) readVarLong()];
+                    for (int i = 0; i < names.length; i++) {
+                        names[i] = readString(buf[pos++]);
+                    }
+                    ClassInfo plan = decodePlan(className, names);
+                    classes.add(plan);
+                    return readObject(plan);
+                case OBJECT:
+                    return readObject(classes.get((int) readVarLong()));
+                case NULL_VALUE:
+                    return NullValue.INSTANCE;
+                case SERIALIZED:
+                    return deserialize(readBytes());
+                default:
+                    throw new IllegalArgumentException("未知的类型标记：" + tag);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object readEnum() throws ClassNotFoundException {
+            Class type = Class.forName(readString(buf[pos++]), false, classLoader);
+            return Enum.valueOf(type, readString(buf[pos++]));
+        }
+
+        private Object readObject(ClassInfo plan) throws ReflectiveOperationException {
+            Object object = plan.constructor.newInstance();
+            for (Field field : plan.fields) {
+                Object value = read();
+                if (field != null) {
+                    value = coerce(value, field.getType());
+                    if (value != SKIP) {
+                        field.set(object, value);
+                    }
+                }
+            }
+            return object;
+        }
+
+        private String readString(int tag) {
+            if (tag == STRING_REF) {
+                return strings.get((int) readVarLong());
+            }
+            if (tag != STRING) {
+                throw new IllegalArgumentException("期望字符串，类型标记：" + tag);
+            }
+            int length = (int) readVarLong();
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            strings.add(value);
+            return value;
+        }
+
+        private byte[] readBytes() {
+            int length = (int) readVarLong();
+            byte[] bytes = new byte[length];
+            System.arraycopy(buf, pos, bytes, 0, length);
+            pos += length;
+            return bytes;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private long readFixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buf[pos++] & 0xFF);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 编码端与本地字段类型不同时（如Integer改为Long）尽量转换，无法转换时跳过该字段
+     * @param value
+     * @param type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private static Object coerce(Object value, Class<?> type) {
+        if (value == null) {
+            return type.isPrimitive() ? SKIP : null;
+        }
+        Class<?> boxed = box(type);
+        if (boxed.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (boxed == Long.class) {
+                return number.longValue();
+            }
+            if (boxed == Integer.class) {
+                return number.intValue();
+            }
+            if (boxed == Double.class) {
+                return number.doubleValue();
+            }
+            if (boxed == BigDecimal.class) {
+                return new BigDecimal(number.toString());
+            }
+        }
+        if (value instanceof Collection && Collection.class.isAssignableFrom(type)) {
+            Collection<Object> collection = (Collection<Object>) newContainer(type);
+            if (collection != null) {
+                collection.addAll((Collection<?>) value);
+                return collection;
+            }
+        }
+        if (value instanceof Map && Map.class.isAssignableFrom(type)) {
+            Map<Object, Object> map = (Map<Object, Object>) newContainer(type);
+            if (map != null) {
+                map.putAll((Map<?, ?>) value);
+                return map;
+            }
+        }
+        return SKIP;
+    }
+
+    private static boolean isContainer(Class<?> type) {
+        return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+    }
+
+    /**
+     * 构造字段声明类型的空集合：接口和抽象类使用CONTAINER_TYPES中的实现类，具体类使用其无参构造方法
+     * @param type
+     * @return 无法构造时返回null
+     */
+    private static Object newContainer(Class<?> type) {
+        Class<?> containerType = type;
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            containerType = null;
+            for (Class<?> c : CONTAINER_TYPES) {
+                if (type.isAssignableFrom(c)) {
+                    containerType = c;
+                    break;
+                }
+            }
+            if (containerType == null) {
+                return null;
+            }
+        }
+        try {
+            Constructor<?> constructor = containerType.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] serialize(Object value) {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
+             ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(value);
+            objectOut.flush();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("JDK序列化失败：" + value.getClass().getName(), e);
+        }
+    }
+
+    private Object deserialize(byte[] bytes) throws ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+                return Class.forName(desc.getName(), false, classLoader);
+            }
+        }) {
+            return in.readObject();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("JDK反序列化失败", e);
+        }
+    }
+}
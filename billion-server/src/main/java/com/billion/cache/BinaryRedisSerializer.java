@@ -0,0 +1,117 @@
+package com.billion.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis缓存值的序列化器，使用BinaryCodec编码，超过阈值时用LZ4压缩
+ * 格式：1字节标识 + 1字节格式版本 + 1字节标志位，压缩时后接4字节原始长度，然后是编码数据
+ * 读取时兼容JDK序列化的数据；滚动升级时可先以JDK格式写入，全部实例升级后再切换为二进制格式；
+ * 无法解码的数据按未命中处理
+ */
+@Slf4j
+public class BinaryRedisSerializer implements RedisSerializer<Object> {
+
+    //JDK序列化的数据以0xACED开头，不会与之冲突
+    private static final byte MAGIC = (byte) 0xB1;
+
+    //格式版本，编码方式不兼容地变化时加一，旧版本的实例读到新版本的数据时按未命中处理
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_LZ4 = 1;
+
+    private static final int HEADER_LENGTH = 3;
+
+    private final BinaryCodec codec;
+
+    private final JdkSerializationRedisSerializer jdkSerializer;
+
+    //为false时以JDK格式写入
+    private final boolean writeBinary;
+
+    //编码后超过该字节数时尝试压缩
+    private final int compressThreshold;
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    public BinaryRedisSerializer(ClassLoader classLoader, boolean writeBinary, int compressThreshold) {
+        this.codec = new BinaryCodec(classLoader);
+        this.jdkSerializer = new JdkSerializationRedisSerializer(classLoader);
+        this.writeBinary = writeBinary;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (!writeBinary) {
+            return jdkSerializer.serialize(value);
+        }
+        byte[] body;
+        try {
+            body = codec.encode(value);
+        } catch (IllegalArgumentException e) {
+            log.warn("二进制编码失败，使用JDK序列化：{}", e.getMessage());
+            return jdkSerializer.serialize(value);
+        }
+
+        if (body.length >= compressThreshold) {
+            byte[] compressed = compressor.compress(body);
+            //压缩后节省的空间不足以抵消长度字段时不压缩
+            if (compressed.length + 4 < body.length) {
+                byte[] bytes = new byte[HEADER_LENGTH + 4 + compressed.length];
+                writeHeader(bytes, FLAG_LZ4);
+                bytes[3] = (byte) (body.length >>> 24);
+                bytes[4] = (byte) (body.length >>> 16);
+                bytes[5] = (byte) (body.length >>> 8);
+                bytes[6] = (byte) body.length;
+                System.arraycopy(compressed, 0, bytes, HEADER_LENGTH + 4, compressed.length);
+                return bytes;
+            }
+        }
+        byte[] bytes = new byte[HEADER_LENGTH + body.length];
+        writeHeader(bytes, 0);
+        System.arraycopy(body, 0, bytes, HEADER_LENGTH, body.length);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if (bytes[1] > VERSION) {
+            log.debug("缓存数据的格式版本{}高于当前版本{}，按未命中处理", bytes[1], VERSION);
+            return null;
+        }
+        try {
+            if ((bytes[2] & FLAG_LZ4) != 0) {
+                int length = (bytes[3] & 0xFF) << 24 | (bytes[4] & 0xFF) << 16 | (bytes[5] & 0xFF) << 8 | (bytes[6] & 0xFF);
+                return codec.decode(decompressor.decompress(bytes, HEADER_LENGTH + 4, length), 0);
+            }
+            return codec.decode(bytes, HEADER_LENGTH);
+        } catch (RuntimeException e) {
+            //类已删除或数据损坏，按未命中处理，缓存会重新加载并覆盖
+            log.warn("缓存数据解码失败，按未命中处理：{}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeHeader(byte[] bytes, int flags) {
+        bytes[0] = MAGIC;
+        bytes[1] = VERSION;
+        bytes[2] = (byte) flags;
+    }
+}
@@ -0,0 +1,93 @@
+package com.billion.cache;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 带版本号的缓存命名空间
+ * Redis中的key包含命名空间当前的版本号，清空命名空间时只把版本号加一，旧版本的key不再被读取，到期后由Redis删除，不需要扫描key
+ */
+public class CacheNamespace {
+
+    //Redis中保存命名空间版本号的key前缀
+    public static final String GENERATION_KEY_PREFIX = "cache:generation:";
+
+    private final String name;
+
+    private final String generationKey;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    //本地版本号的有效期，错过清空广播时最多在此时间后读到新版本号
+    private final long refreshMillis;
+
+    private volatile long generation;
+
+    //本地版本号的过期时间，0表示需要重新读取
+    private volatile long expireTime;
+
+    public CacheNamespace(String name, StringRedisTemplate stringRedisTemplate, Duration refreshInterval) {
+        this.name = name;
+        this.generationKey = GENERATION_KEY_PREFIX + name;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.refreshMillis = refreshInterval.toMillis();
+    }
+
+    /**
+     * 生成当前版本的Redis key，例如setmealCache::3::100
+     * @param key
+     * @return
+     */
+    public String key(String key) {
+        return key(generation(), key);
+    }
+
+    /**
+     * 生成指定版本的Redis key
+     * @param generation
+     * @param key
+     * @return
+     */
+    public String key(long generation, String key) {
+        return name + "::" + generation + "::" + key;
+    }
+
+    /**
+     * 当前版本号，本地过期后从Redis重新读取
+     * @return
+     */
+    public long generation() {
+        if (System.currentTimeMillis() < expireTime) {
+            return generation;
+        }
+        synchronized (this) {
+            if (System.currentTimeMillis() >= expireTime) {
+                String value = stringRedisTemplate.opsForValue().get(generationKey);
+                update(value == null ? 0 : Long.parseLong(value));
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * 清空命名空间：原子地将版本号加一，此前写入的key全部失效
+     */
+    public synchronized void invalidate() {
+        Long value = stringRedisTemplate.opsForValue().increment(generationKey);
+        update(value == null ? 0 : value);
+    }
+
+    /**
+     * 其他实例清空了命名空间，下次访问时重新读取版本号
+     */
+    public void refresh() {
+        expireTime = 0;
+    }
+
+    //先写版本号再写过期时间，读到新过期时间的线程一定能读到新版本号
+    private void update(long value) {
+        generation = value;
+        expireTime = System.currentTimeMillis() + refreshMillis;
+    }
+}
@@ -0,0 +1,164 @@
+package com.billion.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * 两级缓存：本地Caffeine缓存在前，Redis缓存在后
+ * 写入和清除先操作Redis，再广播给其他实例清除各自的本地缓存；清空时递增命名空间的版本号，不扫描Redis中的key
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+
+    private final Cache<String, Object> localCache;
+
+    private final RedisTemplate redisTemplate;
+
+    private final CacheNamespace namespace;
+
+    private final Duration ttl;
+
+    private final TwoLevelCacheManager cacheManager;
+
+    public TwoLevelCache(String name, Cache<String, Object> localCache, RedisTemplate redisTemplate,
+                         CacheNamespace namespace, Duration ttl, TwoLevelCacheManager cacheManager) {
+        super(true);
+        this.name = name;
+        this.localCache = localCache;
+        this.redisTemplate = redisTemplate;
+        this.namespace = namespace;
+        this.ttl = ttl;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String cacheKey = key.toString();
+        Object value = localCache.getIfPresent(cacheKey);
+        if (value == null) {
+            value = redisTemplate.opsForValue().get(namespace.key(cacheKey));
+            if (value != null) {
+                localCache.put(cacheKey, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 同一个key同时只有一个线程回源，其余线程等待其结果
+     * 回源只填充缓存，不广播：其他实例的本地缓存中不会有比它更新的数据
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        //回源期间缓存被清空时，加载的数据可能是旧的，只返回给调用方，不放入本地缓存
+        Object[] loaded = new Object[1];
+        Object value = localCache.get(key.toString(), cacheKey -> {
+            //读取和回写使用同一版本的key，旧数据只会写入已失效的版本
+            long generation = namespace.generation();
+            String redisKey = namespace.key(generation, cacheKey);
+            Object storeValue = redisTemplate.opsForValue().get(redisKey);
+            if (storeValue == null) {
+                try {
+                    storeValue = toStoreValue(valueLoader.call());
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+                set(redisKey, storeValue);
+            }
+            if (namespace.generation() != generation) {
+                loaded[0] = storeValue;
+                return null;
+            }
+            return storeValue;
+        });
+        return (T) fromStoreValue(value != null ? value : loaded[0]);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String cacheKey = key.toString();
+        Object storeValue = toStoreValue(value);
+        set(namespace.key(cacheKey), storeValue);
+        localCache.put(cacheKey, storeValue);
+        cacheManager.publish(name, cacheKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        String cacheKey = key.toString();
+        Object storeValue = toStoreValue(value);
+        String redisKey = namespace.key(cacheKey);
+        Boolean absent = ttl.isZero()
+                ? redisTemplate.opsForValue().setIfAbsent(redisKey, storeValue)
+                : redisTemplate.opsForValue().setIfAbsent(redisKey, storeValue, ttl);
+        if (Boolean.TRUE.equals(absent)) {
+            localCache.put(cacheKey, storeValue);
+            cacheManager.publish(name, cacheKey);
+            return null;
+        }
+        return toValueWrapper(lookup(key));
+    }
+
+    @Override
+    public void evict(Object key) {
+        String cacheKey = key.toString();
+        redisTemplate.delete(namespace.key(cacheKey));
+        localCache.invalidate(cacheKey);
+        cacheManager.publish(name, cacheKey);
+    }
+
+    /**
+     * 旧版本的数据不再被读取，在有效期到达后由Redis删除
+     */
+    @Override
+    public void clear() {
+        namespace.invalidate();
+        localCache.invalidateAll();
+        cacheManager.publish(name, null);
+    }
+
+    /**
+     * 写入Redis，有效期为0时不过期
+     * @param redisKey
+     * @param storeValue
+     */
+    private void set(String redisKey, Object storeValue) {
+        if (ttl.isZero()) {
+            redisTemplate.opsForValue().set(redisKey, storeValue);
+        } else {
+            redisTemplate.opsForValue().set(redisKey, storeValue, ttl);
+        }
+    }
+
+    /**
+     * 其他实例修改了缓存，清除本地缓存中的条目
+     * @param key
+     */
+    void evictLocal(String key) {
+        localCache.invalidate(key);
+    }
+
+    /**
+     * 其他实例清空了缓存，清空本地缓存
+     */
+    void clearLocal() {
+        namespace.refresh();
+        localCache.invalidateAll();
+    }
+}
@@ -0,0 +1,165 @@
+package com.billion.cache;
+
+import com.billion.properties.CacheProperties;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 两级缓存管理器，按缓存名称创建TwoLevelCache
+ * 缓存变化通过Redis发布订阅广播，各实例收到后清除本地缓存，下次读取时从Redis重新加载；
+ * 缓存以外的本地数据（如菜品目录、推荐结果）也可以通过同一频道广播和接收清空、失效通知
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    //缓存失效广播的频道，消息格式：实例id|缓存名称|key，没有key表示清空整个缓存
+    public static final String INVALIDATION_CHANNEL = "cache:invalidation";
+
+    private static final String SEPARATOR = "|";
+
+    //区分消息来源，忽略本实例发出的消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    //其他实例清空指定名称时执行的回调
+    private final ConcurrentMap<String, List<Runnable>> clearListeners = new ConcurrentHashMap<>();
+
+    //其他实例使指定名称下的key失效时执行的回调
+    private final ConcurrentMap<String, List<Consumer<String>>> evictListeners = new ConcurrentHashMap<>();
+
+    private final RedisTemplate redisTemplate;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final CacheProperties cacheProperties;
+
+    public TwoLevelCacheManager(RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                                CacheProperties cacheProperties) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheProperties = cacheProperties;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 收到其他实例的失效广播，清除本地缓存
+     * @param message
+     * @param pattern
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        if (parts.length == 2) {
+            for (Runnable listener : clearListeners.getOrDefault(parts[1], Collections.emptyList())) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    log.error("处理清空通知失败：{}", parts[1], e);
+                }
+            }
+        } else {
+            for (Consumer<String> listener : evictListeners.getOrDefault(parts[1], Collections.emptyList())) {
+                try {
+                    listener.accept(parts[2]);
+                } catch (RuntimeException e) {
+                    log.error("处理失效通知失败：{}，key：{}", parts[1], parts[2], e);
+                }
+            }
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts.length == 3) {
+            cache.evictLocal(parts[2]);
+        } else {
+            cache.clearLocal();
+        }
+    }
+
+    /**
+     * 登记其他实例清空指定名称时的回调，在消息监听线程中执行
+     * @param name
+     * @param listener
+     */
+    public void addClearListener(String name, Runnable listener) {
+        clearListeners.computeIfAbsent(name, n -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * 登记其他实例使指定名称下的key失效时的回调，在消息监听线程中执行
+     * @param name
+     * @param listener 参数为失效的key
+     */
+    public void addEvictListener(String name, Consumer<String> listener) {
+        evictListeners.computeIfAbsent(name, n -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * 通知其他实例使指定名称下的本地数据失效
+     * @param name
+     * @param key
+     */
+    public void publishEvict(String name, String key) {
+        publish(name, key);
+    }
+
+    /**
+     * 通知其他实例清空指定名称的本地数据
+     * @param name
+     */
+    public void publishClear(String name) {
+        publish(name, null);
+    }
+
+    /**
+     * 广播缓存失效
+     * @param cacheName
+     * @param key 为null时表示清空整个缓存
+     */
+    void publish(String cacheName, String key) {
+        String message = nodeId + SEPARATOR + cacheName + (key == null ? "" : SEPARATOR + key);
+        stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+    }
+
+    private TwoLevelCache createCache(String name) {
+        log.info("创建两级缓存：{}", name);
+        return new TwoLevelCache(name,
+                Caffeine.newBuilder()
+                        .maximumSize(cacheProperties.getLocalMaxSize())
+                        .expireAfterWrite(cacheProperties.getLocalTtl())
+                        .build(),
+                redisTemplate,
+                new CacheNamespace(name, stringRedisTemplate, cacheProperties.getLocalTtl()),
+                cacheProperties.getTtl(), this);
+    }
+}
@@ -0,0 +1,224 @@
+package com.billion.catalog;
+
+import com.billion.cache.TwoLevelCacheManager;
+import com.billion.entity.Category;
+import com.billion.entity.Dish;
+import com.billion.entity.DishFlavor;
+import com.billion.entity.Setmeal;
+import com.billion.mapper.CategoryMapper;
+import com.billion.mapper.DishFlavorMapper;
+import com.billion.mapper.DishMapper;
+import com.billion.mapper.SetmealMapper;
+import com.billion.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 菜品目录
+ * 内存中保存全部菜品、口味、套餐和启用分类的只读快照，按id直接用数组下标查找；
+ * 后台修改菜品或套餐后整体重建快照并原子替换（写时复制），用户端的热点路径查询不访问数据库。
+ * 本实例修改后通过缓存失效频道通知其他实例立即重建，定时重建作为兜底；
+ * 返回的对象由所有请求共享，调用方不得修改；每次重建后发布DishCatalogRefreshedEvent
+ */
+@Component
+@Slf4j
+public class DishCatalog {
+
+    //在缓存失效频道中使用的名称
+    public static final String INVALIDATION_NAME = "dishCatalog";
+
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private DishFlavorMapper dishFlavorMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    private volatile Snapshot snapshot = new Snapshot(new Dish[0], new List[0], new Setmeal[0], new HashMap<>());
+
+    /**
+     * 根据id查询菜品
+     * @param id
+     * @return 不存在时返回null
+     */
+    public Dish getDish(long id) {
+        Dish[] dishes = snapshot.dishes;
+        return id >= 0 && id < dishes.length ? dishes[(int) id] : null;
+    }
+
+    /**
+     * 根据菜品id查询口味
+     * @param dishId
+     * @return
+     */
+    public List<DishFlavor> getFlavors(long dishId) {
+        List<DishFlavor>[] flavors = snapshot.flavors;
+        List<DishFlavor> list = dishId >= 0 && dishId < flavors.length ? flavors[(int) dishId] : null;
+        return list != null ? list : Collections.emptyList();
+    }
+
+    /**
+     * 根据id查询套餐
+     * @param id
+     * @return 不存在时返回null
+     */
+    public Setmeal getSetmeal(long id) {
+        Setmeal[] setmeals = snapshot.setmeals;
+        return id >= 0 && id < setmeals.length ? setmeals[(int) id] : null;
+    }
+
+    /**
+     * 根据id查询启用的分类名称
+     * @param id
+     * @return 分类不存在或已禁用时返回null
+     */
+    public String getCategoryName(Long id) {
+        return id != null ? snapshot.categoryNames.get(id) : null;
+    }
+
+    /**
+     * 全部菜品，按id升序
+     * @return
+     */
+    public List<Dish> getDishes() {
+        List<Dish> list = new ArrayList<>();
+        for (Dish dish : snapshot.dishes) {
+            if (dish != null) {
+                list.add(dish);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 全部套餐，按id升序
+     * @return
+     */
+    public List<Setmeal> getSetmeals() {
+        List<Setmeal> list = new ArrayList<>();
+        for (Setmeal setmeal : snapshot.setmeals) {
+            if (setmeal != null) {
+                list.add(setmeal);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 菜品、套餐或分类数据变化，重建快照并通知其他实例重建；在事务中调用时，事务提交后再重建，避免读到未提交的数据
+     */
+    public void refreshAfterCommit() {
+        TransactionUtils.afterCommit(this::refreshAndBroadcast);
+    }
+
+    /**
+     * 启动时加载快照，并在收到其他实例的修改通知时重建
+     */
+    @PostConstruct
+    public void init() {
+        cacheManager.addClearListener(INVALIDATION_NAME, this::refresh);
+        refresh();
+    }
+
+    private void refreshAndBroadcast() {
+        refresh();
+        cacheManager.publishClear(INVALIDATION_NAME);
+    }
+
+    /**
+     * 从数据库加载全部菜品、口味、套餐和启用的分类，重建快照；定时执行，兜底同步错过通知的修改
+     */
+    @Scheduled(fixedDelay = 5 * 60 * 1000, initialDelay = 5 * 60 * 1000)
+    public synchronized void refresh() {
+        List<Dish> dishList = dishMapper.list(new Dish());
+        List<DishFlavor> flavorList = dishFlavorMapper.list();
+        List<Setmeal> setmealList = setmealMapper.list(new Setmeal());
+        List<Category> categoryList = categoryMapper.list(null);
+
+        Dish[] dishes = new Dish[maxDishId(dishList) + 1];
+        for (Dish dish : dishList) {
+            dishes[dish.getId().intValue()] = dish;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<DishFlavor>[] flavors = new List[dishes.length];
+        for (DishFlavor flavor : flavorList) {
+            int dishId = flavor.getDishId().intValue();
+            if (dishId >= dishes.length || dishes[dishId] == null) {
+                continue;
+            }
+            if (flavors[dishId] == null) {
+                flavors[dishId] = new ArrayList<>();
+            }
+            flavors[dishId].add(flavor);
+        }
+        for (int i = 0; i < flavors.length; i++) {
+            if (flavors[i] != null) {
+                flavors[i] = Collections.unmodifiableList(flavors[i]);
+            }
+        }
+
+        Setmeal[] setmeals = new Setmeal[maxSetmealId(setmealList) + 1];
+        for (Setmeal setmeal : setmealList) {
+            setmeals[setmeal.getId().intValue()] = setmeal;
+        }
+
+        Map<Long, String> categoryNames = new HashMap<>();
+        for (Category category : categoryList) {
+            categoryNames.put(category.getId(), category.getName());
+        }
+
+        snapshot = new Snapshot(dishes, flavors, setmeals, categoryNames);
+        log.info("重建菜品目录，菜品数：{}，口味数：{}，套餐数：{}", dishList.size(), flavorList.size(), setmealList.size());
+        applicationEventPublisher.publishEvent(new DishCatalogRefreshedEvent(this));
+    }
+
+    private static int maxDishId(List<Dish> dishList) {
+        long max = -1;
+        for (Dish dish : dishList) {
+            max = Math.max(max, dish.getId());
+        }
+        return Math.toIntExact(max);
+    }
+
+    private static int maxSetmealId(List<Setmeal> setmealList) {
+        long max = -1;
+        for (Setmeal setmeal : setmealList) {
+            max = Math.max(max, setmeal.getId());
+        }
+        return Math.toIntExact(max);
+    }
+
+    /**
+     * 不可变的目录快照，数组下标即id
+     */
+    private static class Snapshot {
+        private final Dish[] dishes;
+        private final List<DishFlavor>[] flavors;
+        private final Setmeal[] setmeals;
+        private final Map<Long, String> categoryNames;
+
+        private Snapshot(Dish[] dishes, List<DishFlavor>[] flavors, Setmeal[] setmeals, Map<Long, String> categoryNames) {
+            this.dishes = dishes;
+            this.flavors = flavors;
+            this.setmeals = setmeals;
+            this.categoryNames = categoryNames;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.billion.catalog;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 菜品目录重建完成
+ */
+public class DishCatalogRefreshedEvent extends ApplicationEvent {
+
+    public DishCatalogRefreshedEvent(DishCatalog source) {
+        super(source);
+    }
+}
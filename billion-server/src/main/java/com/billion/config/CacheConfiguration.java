@@ -0,0 +1,46 @@
+package com.billion.config;
+
+import com.billion.cache.TwoLevelCacheManager;
+import com.billion.properties.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+
+    /**
+     * 缓存注解使用的两级缓存管理器
+     * @param redisTemplate
+     * @param stringRedisTemplate
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                                             CacheProperties cacheProperties) {
+        log.info("开始创建两级缓存管理器...");
+        return new TwoLevelCacheManager(redisTemplate, stringRedisTemplate, cacheProperties);
+    }
+
+    /**
+     * 订阅缓存失效广播
+     * @param redisConnectionFactory
+     * @param cacheManager
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                            TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
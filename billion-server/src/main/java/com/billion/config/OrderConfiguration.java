@@ -0,0 +1,26 @@
+package com.billion.config;
+
+import com.billion.properties.OrderProperties;
+import com.billion.utils.IdGenerator;
+import com.billion.utils.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class OrderConfiguration {
+
+    /**
+     * 订单号生成器，可通过自定义IdGenerator类型的Bean替换
+     * @param orderProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public IdGenerator idGenerator(OrderProperties orderProperties){
+        log.info("创建订单号生成器，节点id：{}", orderProperties.getNodeId());
+        return new SnowflakeIdGenerator(orderProperties.getNodeId());
+    }
+}
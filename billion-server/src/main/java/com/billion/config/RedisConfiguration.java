@@ -1,10 +1,14 @@
 package com.billion.config;
 
+import com.billion.cache.BinaryRedisSerializer;
+import com.billion.properties.CacheProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -12,13 +16,28 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 public class RedisConfiguration {
 
     @Bean
-    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory){
+    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory, RedisSerializer<Object> redisValueSerializer){
         log.info("开始创建redis模板对象...");
         RedisTemplate redisTemplate = new RedisTemplate();
         //设置redis的连接工厂对象
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //设置redis key的序列化器
         redisTemplate.setKeySerializer(new StringRedisSerializer());
+        //设置redis value的序列化器，缓存注解也通过该模板读写Redis
+        redisTemplate.setValueSerializer(redisValueSerializer);
         return redisTemplate;
     }
+
+    /**
+     * redis value的序列化器，可通过自定义名为redisValueSerializer的Bean替换
+     * @param cacheProperties
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "redisValueSerializer")
+    public RedisSerializer<Object> redisValueSerializer(CacheProperties cacheProperties){
+        log.info("创建redis value序列化器，写入格式：{}", cacheProperties.getCodec());
+        return new BinaryRedisSerializer(getClass().getClassLoader(),
+                !"jdk".equals(cacheProperties.getCodec()), cacheProperties.getCompressThreshold());
+    }
 }
@@ -2,6 +2,7 @@ package com.billion.config;
 
 import com.billion.interceptor.JwtTokenAdminInterceptor;
 import com.billion.interceptor.JwtTokenUserInterceptor;
+import com.billion.interceptor.RequestSqlCountInterceptor;
 import com.billion.json.JacksonObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +33,8 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
     private JwtTokenAdminInterceptor jwtTokenAdminInterceptor;
     @Autowired
     private JwtTokenUserInterceptor jwtTokenUserInterceptor;
+    @Autowired
+    private RequestSqlCountInterceptor requestSqlCountInterceptor;
 
     /**
      * 注册自定义拦截器
@@ -39,6 +42,9 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
      */
     protected void addInterceptors(InterceptorRegistry registry) {
         log.info("开始注册自定义拦截器...");
+        registry.addInterceptor(requestSqlCountInterceptor)
+                .addPathPatterns("/admin/**", "/user/**");
+
         registry.addInterceptor(jwtTokenAdminInterceptor)
                 .addPathPatterns("/admin/**")
                 .excludePathPatterns("/admin/employee/login");
@@ -0,0 +1,55 @@
+package com.billion.controller.admin;
+
+import com.billion.algrithm.ModelRegistry;
+import com.billion.algrithm.Recommendation;
+import com.billion.constant.MessageConstant;
+import com.billion.result.Result;
+import com.billion.vo.ModelVersionVO;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/model")
+@Api(tags = "推荐模型相关接口")
+@Slf4j
+public class ModelController {
+
+    @Autowired
+    private Recommendation recommendation;
+    @Autowired
+    private ModelRegistry modelRegistry;
+
+    /**
+     * 查询推荐模型版本
+     * @return
+     */
+    @GetMapping("/version")
+    @ApiOperation("查询推荐模型版本")
+    public Result<ModelVersionVO> version() {
+        ModelVersionVO modelVersionVO = ModelVersionVO.builder()
+                .version(recommendation.getModelVersion())
+                .shadowVersion(recommendation.getShadowModelVersion())
+                .build();
+        return Result.success(modelVersionVO);
+    }
+
+    /**
+     * 影子模型转为当前模型
+     * @return
+     */
+    @PutMapping("/promote")
+    @ApiOperation("影子模型转为当前模型")
+    public Result promote() {
+        log.info("影子推荐模型转为当前模型");
+        if (!modelRegistry.promote()) {
+            return Result.error(MessageConstant.SHADOW_MODEL_NOT_FOUND);
+        }
+        return Result.success();
+    }
+}
@@ -91,12 +91,22 @@ public class ReportController {
     }
 
     /**
-     * 导出运营数据报表
+     * 导出运营数据报表，未指定日期区间时导出最近30天
+     * @param begin
+     * @param end
      * @param response
      */
     @GetMapping("/export")
     @ApiOperation("导出运营数据报表")
-    public void export(HttpServletResponse response){
-        reportService.exportBusinessData(response);
+    public void export(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            HttpServletResponse response){
+        if (begin == null || end == null) {
+            reportService.exportBusinessData(response);
+            return;
+        }
+        log.info("导出运营数据报表：{},{}",begin,end);
+        reportService.exportBusinessData(begin, end, response);
     }
 }
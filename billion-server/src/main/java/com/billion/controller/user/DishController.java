@@ -6,11 +6,12 @@ import com.billion.entity.Dish;
 import com.billion.result.Result;
 import com.billion.service.DishService;
 import com.billion.vo.DishVO;
+import com.billion.vo.SuggestionVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -23,8 +24,6 @@ import java.util.List;
 public class DishController {
     @Autowired
     private DishService dishService;
-    @Autowired
-    private RedisTemplate redisTemplate;
 
     /**
      * 根据分类id查询菜品
@@ -34,26 +33,13 @@ public class DishController {
      */
     @GetMapping("/list")
     @ApiOperation("根据分类id查询菜品")
+    @Cacheable(cacheNames = "dishCache",key = "#categoryId",sync = true) //key: dishCache::100
     public Result<List<DishVO>> list(Long categoryId) {
-
-        //构造redis中的key，规则：dish_分类id
-        String key = "dish_" + categoryId;
-
-        //查询redis中是否存在菜品数据
-        List<DishVO> list = (List<DishVO>) redisTemplate.opsForValue().get(key);
-        if(list != null && !list.isEmpty()){
-            //如果存在，直接返回，无须查询数据库
-            return Result.success(list);
-        }
-
         Dish dish = new Dish();
         dish.setCategoryId(categoryId);
         dish.setStatus(StatusConstant.ENABLE);//查询起售中的菜品
 
-        //如果不存在，查询数据库，将查询到的数据放入redis中
-        list = dishService.listWithFlavor(dish);
-        redisTemplate.opsForValue().set(key, list);
-
+        List<DishVO> list = dishService.listWithFlavor(dish);
         return Result.success(list);
     }
 
@@ -83,4 +69,17 @@ public class DishController {
         return Result.success(list);
     }
 
+    /**
+     * 根据用户输入的前缀提示菜品和套餐名称
+     *
+     * @param prefix 已输入的内容，支持全拼和拼音首字母
+     * @return Result<List<SuggestionVO>>
+     */
+    @GetMapping("/suggest")
+    @ApiOperation("根据用户输入的前缀提示菜品和套餐名称")
+    public Result<List<SuggestionVO>> suggest(String prefix) {
+        List<SuggestionVO> list = dishService.suggest(prefix);
+        return Result.success(list);
+    }
+
 }
@@ -30,7 +30,7 @@ public class SetmealController {
      */
     @GetMapping("/list")
     @ApiOperation("根据分类id查询套餐")
-    @Cacheable(cacheNames = "setmealCache",key = "#categoryId") //key: setmealCache::100
+    @Cacheable(cacheNames = "setmealCache",key = "#categoryId",sync = true) //key: setmealCache::100
     public Result<List<Setmeal>> list(Long categoryId) {
         Setmeal setmeal = new Setmeal();
         setmeal.setCategoryId(categoryId);
@@ -52,4 +52,17 @@ public class SetmealController {
         List<DishItemVO> list = setmealService.getDishItemById(id);
         return Result.success(list);
     }
+
+    /**
+     * 根据用户query搜索套餐
+     *
+     * @param query 搜索关键词
+     * @return
+     */
+    @GetMapping("/search")
+    @ApiOperation("根据用户query搜索套餐")
+    public Result<List<Setmeal>> search(String query) {
+        List<Setmeal> list = setmealService.listWithSearch(query);
+        return Result.success(list);
+    }
 }
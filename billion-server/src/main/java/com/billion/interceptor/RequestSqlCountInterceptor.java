@@ -0,0 +1,27 @@
+package com.billion.interceptor;
+
+import com.billion.context.SqlCountContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 按请求统计SQL执行次数的拦截器，用于确认列表页的查询次数固定，不随数据行数增长
+ */
+@Component
+@Slf4j
+public class RequestSqlCountInterceptor implements HandlerInterceptor {
+
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlCountContext.start();
+        return true;
+    }
+
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        log.debug("{} {} 执行SQL：{}条", request.getMethod(), request.getRequestURI(), SqlCountContext.getCount());
+        SqlCountContext.remove();
+    }
+}
@@ -0,0 +1,25 @@
+package com.billion.interceptor;
+
+import com.billion.context.SqlCountContext;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+
+/**
+ * MyBatis插件，统计每个请求实际发往数据库的SQL语句数量
+ * 拦截StatementHandler.prepare，每条语句（包括分页插件生成的count语句）只会prepare一次，命中一级缓存的查询不计数
+ */
+@Component
+@Intercepts({@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})})
+public class SqlCountInterceptor implements Interceptor {
+
+    public Object intercept(Invocation invocation) throws Throwable {
+        SqlCountContext.increment();
+        return invocation.proceed();
+    }
+}
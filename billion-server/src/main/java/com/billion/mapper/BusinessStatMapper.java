@@ -0,0 +1,80 @@
+package com.billion.mapper;
+
+import com.billion.entity.BusinessStat;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface BusinessStatMapper {
+
+    /**
+     * 在指定时段的汇总数据上累加，时段不存在时插入
+     * @param businessStat
+     */
+    void increase(BusinessStat businessStat);
+
+    /**
+     * 根据订单id，将订单金额和有效订单数累加到订单下单时间所在的时段
+     * @param orderIds
+     * @param sign 1表示订单完成，-1表示撤销已完成的订单
+     */
+    void increaseValidByOrderIds(List<Long> orderIds, int sign);
+
+    /**
+     * 统计指定时间区间内的汇总数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    BusinessStat sumByTime(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按天统计指定时间区间内的汇总数据，按日期升序排列
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<BusinessStat> listDaily(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按天统计指定时间区间内的汇总数据，按日期升序逐行交给handler处理
+     * @param begin
+     * @param end
+     * @param handler
+     */
+    void streamDaily(LocalDateTime begin, LocalDateTime end, ResultHandler<BusinessStat> handler);
+
+    /**
+     * 删除指定时间区间内的汇总数据
+     * @param begin
+     * @param end
+     */
+    @Delete("delete from business_stat where stat_time >= #{begin} and stat_time < #{end}")
+    void deleteByTime(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 根据orders表重新汇总指定时间区间内的订单数据
+     * @param begin
+     * @param end
+     */
+    void insertOrderStatByTime(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 根据user表重新汇总指定时间区间内的新增用户数据
+     * @param begin
+     * @param end
+     */
+    void insertUserStatByTime(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 查询汇总表数据量
+     * @return
+     */
+    @Select("select count(*) from business_stat")
+    Integer count();
+}
@@ -29,4 +29,11 @@ public interface DishFlavorMapper {
      */
     @Select("select * from dish_flavor where dish_id = #{dishId}")
     List<DishFlavor> getByDishId(Long dishId);
+
+    /**
+     * 查询全部口味数据
+     * @return
+     */
+    @Select("select * from dish_flavor")
+    List<DishFlavor> list();
 }
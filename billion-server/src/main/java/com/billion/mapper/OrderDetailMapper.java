@@ -1,9 +1,12 @@
 package com.billion.mapper;
 
+import com.billion.dto.UserDishDTO;
 import com.billion.entity.OrderDetail;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -23,9 +26,30 @@ public interface OrderDetailMapper {
     List<OrderDetail> getByOrderId(Long orderId);
 
     /**
-     * 根据用户id查询历史dish id
-     * @param userId
+     * 根据订单id批量查询订单明细，用于订单列表页一次性加载整页明细
+     * @param orderIds
      * @return
      */
-    List<Integer> getRecentByUserId(Long userId);
+    List<OrderDetail> getByOrderIds(List<Long> orderIds);
+
+    /**
+     * 查询指定订单中的菜品及下单用户，按下单时间排序，不含套餐
+     * @param orderIds
+     * @return
+     */
+    List<UserDishDTO> getUserDishByOrderIds(List<Long> orderIds);
+
+    /**
+     * 查询指定状态订单中的菜品及下单用户，按用户、下单时间排序后逐行交给handler处理，不含套餐
+     * @param status
+     * @param handler
+     */
+    void streamUserDish(Integer status, ResultHandler<UserDishDTO> handler);
+
+    /**
+     * 统计指定时间之后已完成订单中每个菜品、套餐的销量，number为销量
+     * @param begin
+     * @return
+     */
+    List<OrderDetail> getSalesByOrderTimeGE(LocalDateTime begin);
 }
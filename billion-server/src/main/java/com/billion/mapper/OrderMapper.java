@@ -2,7 +2,9 @@ package com.billion.mapper;
 
 import com.github.pagehelper.Page;
 import com.billion.dto.GoodsSalesDTO;
+import com.billion.dto.OrderStatusCountDTO;
 import com.billion.dto.OrdersPageQueryDTO;
+import com.billion.entity.BusinessStat;
 import com.billion.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
@@ -59,6 +61,21 @@ public interface OrderMapper {
     @Select("select count(id) from orders where status = #{status}")
     Integer countStatus(Integer status);
 
+    /**
+     * 查询指定时间之后下过单的用户id
+     * @param begin
+     * @return
+     */
+    @Select("select distinct user_id from orders where order_time >= #{begin}")
+    List<Long> getUserIdsByOrderTimeGE(LocalDateTime begin);
+
+    /**
+     * 按状态分组统计订单数量
+     * @param begin 下单时间的起点，为空时统计全部订单
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByStatus(LocalDateTime begin);
+
     /**
      * 根据订单状态和下单时间查询订单
      * @param status
@@ -68,6 +85,40 @@ public interface OrderMapper {
     @Select("select * from orders where status = #{status} and order_time < #{orderTime}")
     List<Orders> getByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
 
+    /**
+     * 根据订单状态和下单时间查询订单id
+     * @param status
+     * @param orderTime
+     * @return
+     */
+    @Select("select id from orders where status = #{status} and order_time < #{orderTime}")
+    List<Long> getIdsByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
+
+    /**
+     * 查询并锁定指定id中处于指定状态的订单，需要在事务中调用
+     * @param ids
+     * @param status
+     * @return 处于指定状态的订单id
+     */
+    List<Long> lockIdsByStatus(List<Long> ids, Integer status);
+
+    /**
+     * 批量修改指定id中处于原状态的订单，修改的字段与update相同
+     * @param ids
+     * @param fromStatus 原状态
+     * @param orders 修改后的字段
+     * @return 修改的订单数
+     */
+    Integer updateByIdsAndStatus(List<Long> ids, Integer fromStatus, Orders orders);
+
+    /**
+     * 修改处于允许状态之一的订单，修改的字段与update相同
+     * @param orders 订单id及修改后的字段
+     * @param fromStatuses 允许的原状态
+     * @return 修改的订单数，为0表示订单不存在或状态不允许
+     */
+    Integer updateByIdAndStatus(Orders orders, List<Integer> fromStatuses);
+
     /**
      * 根据动态条件统计营业额数据
      * @param map
@@ -89,4 +140,19 @@ public interface OrderMapper {
      * @return
      */
     List<GoodsSalesDTO> getSalesTop10(LocalDateTime begin,LocalDateTime end);
+
+    /**
+     * 查询最早的下单时间
+     * @return
+     */
+    @Select("select min(order_time) from orders")
+    LocalDateTime getMinOrderTime();
+
+    /**
+     * 按天统计指定时间区间内的营业额、有效订单数和订单总数
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<BusinessStat> getDailyStatistics(LocalDateTime begin, LocalDateTime end);
 }
@@ -1,9 +1,12 @@
 package com.billion.mapper;
 
+import com.billion.entity.BusinessStat;
 import com.billion.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -32,4 +35,19 @@ public interface UserMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 查询最早的注册时间
+     * @return
+     */
+    @Select("select min(create_time) from user")
+    LocalDateTime getMinCreateTime();
+
+    /**
+     * 按天统计指定时间区间内的新增用户数
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<BusinessStat> getDailyNewUser(LocalDateTime begin, LocalDateTime end);
 }
@@ -0,0 +1,342 @@
+package com.billion.search;
+
+import com.billion.catalog.DishCatalog;
+import com.billion.catalog.DishCatalogRefreshedEvent;
+import com.billion.constant.StatusConstant;
+import com.billion.entity.Dish;
+import com.billion.entity.Setmeal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 菜品、套餐搜索的内存倒排索引
+ * 名称、分类名称和描述按字切分为单字和相邻两字（bigram），中文不需要分词；
+ * 菜品目录重建后只更新内容有变化的菜品和套餐；结果按匹配程度排序，相同时按近期销量排序
+ */
+@Component
+@Slf4j
+public class DishSearchIndex {
+
+    //字段：名称、分类名称、描述，匹配时的权重依次降低
+    private static final int NAME = 0;
+    private static final int CATEGORY = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int[] FIELD_WEIGHTS = {3, 2, 1};
+
+    //某个字段至少匹配查询中一半的词才作为结果
+    private static final double MIN_MATCH_RATIO = 0.5;
+
+    @Autowired
+    private DishCatalog dishCatalog;
+    @Autowired
+    private RecentSales recentSales;
+
+    //词 -> 文档 -> 出现该词的字段（按位）
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+    //已索引的文档
+    private final Map<Long, Doc> docs = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 搜索起售中的菜品
+     * @param query
+     * @param limit
+     * @return 菜品id，按相关程度排列
+     */
+    public List<Long> searchDishes(String query, int limit) {
+        return search(query, false, limit);
+    }
+
+    /**
+     * 搜索起售中的套餐
+     * @param query
+     * @param limit
+     * @return 套餐id，按相关程度排列
+     */
+    public List<Long> searchSetmeals(String query, int limit) {
+        return search(query, true, limit);
+    }
+
+    /**
+     * 菜品目录重建后，对比每个菜品和套餐的索引内容，只更新有变化的部分
+     */
+    @EventListener({ApplicationReadyEvent.class, DishCatalogRefreshedEvent.class})
+    public synchronized void sync() {
+        Map<Long, Doc> latest = new HashMap<>();
+        for (Dish dish : dishCatalog.getDishes()) {
+            latest.put(dishKey(dish.getId()), new Doc(dish.getName(), dishCatalog.getCategoryName(dish.getCategoryId()),
+                    dish.getDescription(), StatusConstant.ENABLE.equals(dish.getStatus())));
+        }
+        for (Setmeal setmeal : dishCatalog.getSetmeals()) {
+            latest.put(setmealKey(setmeal.getId()), new Doc(setmeal.getName(), dishCatalog.getCategoryName(setmeal.getCategoryId()),
+                    setmeal.getDescription(), StatusConstant.ENABLE.equals(setmeal.getStatus())));
+        }
+
+        int changed = 0;
+        int termCount;
+        lock.writeLock().lock();
+        try {
+            for (Long key : new ArrayList<>(docs.keySet())) {
+                if (!latest.containsKey(key)) {
+                    remove(key);
+                    changed++;
+                }
+            }
+            for (Map.Entry<Long, Doc> entry : latest.entrySet()) {
+                Doc old = docs.get(entry.getKey());
+                if (entry.getValue().equals(old)) {
+                    continue;
+                }
+                if (old != null) {
+                    remove(entry.getKey());
+                }
+                add(entry.getKey(), entry.getValue());
+                changed++;
+            }
+            termCount = postings.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (changed > 0) {
+            log.info("更新菜品搜索索引，变化数：{}，文档数：{}，词数：{}", changed, latest.size(), termCount);
+        }
+    }
+
+    private List<Long> search(String query, boolean setmeal, int limit) {
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        //文档 -> 每个字段匹配的词数
+        Map<Long, int[]> matches = new HashMap<>();
+        Map<Long, Doc> candidates = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                Map<Long, Integer> docFields = postings.get(term);
+                if (docFields == null) {
+                    continue;
+                }
+                for (Map.Entry<Long, Integer> entry : docFields.entrySet()) {
+                    Long key = entry.getKey();
+                    if (isSetmeal(key) != setmeal) {
+                        continue;
+                    }
+                    int[] counts = matches.computeIfAbsent(key, k -> new int[FIELD_WEIGHTS.length]);
+                    for (int field = 0; field < counts.length; field++) {
+                        if ((entry.getValue() & (1 << field)) != 0) {
+                            counts[field]++;
+                        }
+                    }
+                }
+            }
+            for (Long key : matches.keySet()) {
+                candidates.put(key, docs.get(key));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        String normalized = normalize(query);
+        List<Hit> hits = new ArrayList<>();
+        for (Map.Entry<Long, int[]> entry : matches.entrySet()) {
+            Doc doc = candidates.get(entry.getKey());
+            if (doc == null || !doc.enabled) {
+                continue;
+            }
+            double score = 0;
+            boolean enough = false;
+            for (int field = 0; field < FIELD_WEIGHTS.length; field++) {
+                double ratio = (double) entry.getValue()[field] / terms.size();
+                enough |= ratio >= MIN_MATCH_RATIO;
+                score += FIELD_WEIGHTS[field] * ratio;
+            }
+            if (!enough) {
+                continue;
+            }
+            //名称完整包含查询的排在前面
+            if (normalize(doc.name).contains(normalized)) {
+                score += FIELD_WEIGHTS[NAME];
+            }
+            long id = entry.getKey() >> 1;
+            long sales = setmeal ? recentSales.getSetmealSales(id) : recentSales.getDishSales(id);
+            hits.add(new Hit(entry.getKey(), score, sales));
+        }
+
+        hits.sort((a, b) -> {
+            if (a.score != b.score) {
+                return Double.compare(b.score, a.score);
+            }
+            if (a.sales != b.sales) {
+                return Long.compare(b.sales, a.sales);
+            }
+            return Long.compare(a.key, b.key);
+        });
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            ids.add(hits.get(i).key >> 1);
+        }
+        return ids;
+    }
+
+    private void add(Long key, Doc doc) {
+        String[] fields = {doc.name, doc.categoryName, doc.description};
+        for (int field = 0; field < fields.length; field++) {
+            for (String term : terms(fields[field])) {
+                postings.computeIfAbsent(term, t -> new HashMap<>()).merge(key, 1 << field, (a, b) -> a | b);
+            }
+        }
+        docs.put(key, doc);
+    }
+
+    private void remove(Long key) {
+        Doc doc = docs.remove(key);
+        if (doc == null) {
+            return;
+        }
+        for (String field : new String[]{doc.name, doc.categoryName, doc.description}) {
+            for (String term : terms(field)) {
+                Map<Long, Integer> docFields = postings.get(term);
+                if (docFields != null) {
+                    docFields.remove(key);
+                    if (docFields.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 索引的词：每个字及相邻两个字
+     * @param text
+     * @return
+     */
+    private static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        String normalized = normalize(text);
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c == ' ') {
+                continue;
+            }
+            terms.add(String.valueOf(c));
+            if (i + 1 < normalized.length() && normalized.charAt(i + 1) != ' ') {
+                terms.add(normalized.substring(i, i + 2));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 查询的词：相邻两个字，只有一个字的片段使用单字
+     * @param query
+     * @return
+     */
+    private static List<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String segment : normalize(query).split(" ")) {
+            if (segment.length() == 1) {
+                terms.add(segment);
+            }
+            for (int i = 0; i + 1 < segment.length(); i++) {
+                terms.add(segment.substring(i, i + 2));
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * 转为小写，标点等非字母数字的字符替换为空格
+     * @param text
+     * @return
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+        }
+        return sb.toString().trim();
+    }
+
+    private static long dishKey(Long dishId) {
+        return dishId << 1;
+    }
+
+    private static long setmealKey(Long setmealId) {
+        return (setmealId << 1) | 1;
+    }
+
+    private static boolean isSetmeal(long key) {
+        return (key & 1) == 1;
+    }
+
+    /**
+     * 一个菜品或套餐的索引内容
+     */
+    private static class Doc {
+        private final String name;
+        private final String categoryName;
+        private final String description;
+        private final boolean enabled;
+
+        private Doc(String name, String categoryName, String description, boolean enabled) {
+            this.name = name;
+            this.categoryName = categoryName;
+            this.description = description;
+            this.enabled = enabled;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Doc)) {
+                return false;
+            }
+            Doc doc = (Doc) o;
+            return enabled == doc.enabled && Objects.equals(name, doc.name)
+                    && Objects.equals(categoryName, doc.categoryName) && Objects.equals(description, doc.description);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, categoryName, description, enabled);
+        }
+    }
+
+    private static class Hit {
+        private final long key;
+        private final double score;
+        private final long sales;
+
+        private Hit(long key, double score, long sales) {
+            this.key = key;
+            this.score = score;
+            this.sales = sales;
+        }
+    }
+}
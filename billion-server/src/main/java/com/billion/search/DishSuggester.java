@@ -0,0 +1,238 @@
+package com.billion.search;
+
+import com.billion.catalog.DishCatalog;
+import com.billion.catalog.DishCatalogRefreshedEvent;
+import com.billion.constant.StatusConstant;
+import com.billion.entity.Dish;
+import com.billion.entity.Setmeal;
+import com.billion.vo.SuggestionVO;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 菜品、套餐名称的输入提示
+ * 名称、全拼和拼音首字母都插入前缀树，每个节点预先保存经过该节点销量最高的若干个结果，
+ * 查询只需沿前缀走到对应节点；树构建后不再修改，菜品目录或销量变化时整体重建并替换
+ */
+@Component
+@Slf4j
+public class DishSuggester {
+
+    //每个节点保存的结果数，即最多返回的提示数
+    public static final int MAX_SUGGESTIONS = 10;
+
+    //提示类型
+    public static final int DISH = 1;
+    public static final int SETMEAL = 2;
+
+    private static final HanyuPinyinOutputFormat PINYIN_FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        PINYIN_FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        PINYIN_FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        PINYIN_FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    @Autowired
+    private DishCatalog dishCatalog;
+    @Autowired
+    private RecentSales recentSales;
+
+    private volatile Node root = new Node(new char[0], new Node[0], new SuggestionVO[0]);
+
+    /**
+     * 查询以prefix开头的名称、全拼或拼音首字母对应的菜品和套餐，按近期销量排序
+     * @param prefix
+     * @param limit 不超过MAX_SUGGESTIONS
+     * @return
+     */
+    public List<SuggestionVO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        int size = Math.min(limit, node.top.length);
+        return Arrays.asList(Arrays.copyOf(node.top, size));
+    }
+
+    /**
+     * 根据菜品目录中起售的菜品、套餐和近期销量重建前缀树
+     */
+    @EventListener({ApplicationReadyEvent.class, DishCatalogRefreshedEvent.class})
+    @Scheduled(cron = "0 5 * * * ?") //销量每小时更新后重建
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        BuildNode buildRoot = new BuildNode();
+        int count = 0;
+        for (Dish dish : dishCatalog.getDishes()) {
+            if (StatusConstant.ENABLE.equals(dish.getStatus())) {
+                insert(buildRoot, new Entry(SuggestionVO.builder().id(dish.getId()).type(DISH).name(dish.getName()).build(),
+                        recentSales.getDishSales(dish.getId())));
+                count++;
+            }
+        }
+        for (Setmeal setmeal : dishCatalog.getSetmeals()) {
+            if (StatusConstant.ENABLE.equals(setmeal.getStatus())) {
+                insert(buildRoot, new Entry(SuggestionVO.builder().id(setmeal.getId()).type(SETMEAL).name(setmeal.getName()).build(),
+                        recentSales.getSetmealSales(setmeal.getId())));
+                count++;
+            }
+        }
+        root = freeze(buildRoot);
+        log.info("重建输入提示前缀树，名称数：{}，耗时：{}ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 插入名称、全拼和拼音首字母，经过的每个节点都记录该结果
+     */
+    private static void insert(BuildNode buildRoot, Entry entry) {
+        for (String key : keys(entry.suggestion.getName())) {
+            BuildNode node = buildRoot;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new BuildNode());
+                node.entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * 转为不可变的紧凑节点，每个节点只保留销量最高的MAX_SUGGESTIONS个结果
+     */
+    private static Node freeze(BuildNode buildNode) {
+        char[] keys = new char[buildNode.children.size()];
+        Node[] children = new Node[keys.length];
+        int i = 0;
+        for (Map.Entry<Character, BuildNode> child : buildNode.children.entrySet()) {
+            keys[i] = child.getKey();
+            children[i] = freeze(child.getValue());
+            i++;
+        }
+
+        List<Entry> entries = new ArrayList<>(buildNode.entries);
+        entries.sort(Comparator.comparingLong((Entry e) -> -e.sales)
+                .thenComparing(e -> e.suggestion.getName())
+                .thenComparingInt(e -> e.suggestion.getType())
+                .thenComparingLong(e -> e.suggestion.getId()));
+        SuggestionVO[] top = new SuggestionVO[Math.min(MAX_SUGGESTIONS, entries.size())];
+        for (int j = 0; j < top.length; j++) {
+            top[j] = entries.get(j).suggestion;
+        }
+        return new Node(keys, children, top);
+    }
+
+    /**
+     * 名称、全拼、拼音首字母；多音字取第一个读音
+     */
+    private static Set<String> keys(String name) {
+        Set<String> keys = new LinkedHashSet<>();
+        String normalized = normalize(name);
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+
+        StringBuilder pinyin = new StringBuilder();
+        StringBuilder initials = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            String[] readings = null;
+            try {
+                readings = PinyinHelper.toHanyuPinyinStringArray(c, PINYIN_FORMAT);
+            } catch (BadHanyuPinyinOutputFormatCombination e) {
+                log.error("拼音格式错误", e);
+            }
+            if (readings != null && readings.length > 0) {
+                pinyin.append(readings[0]);
+                initials.append(readings[0].charAt(0));
+            } else {
+                pinyin.append(c);
+                initials.append(c);
+            }
+        }
+        keys.add(pinyin.toString());
+        keys.add(initials.toString());
+        return keys;
+    }
+
+    /**
+     * 转为小写并去掉空白和标点
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 构建时使用的可变节点
+     */
+    private static class BuildNode {
+        private final Map<Character, BuildNode> children = new TreeMap<>();
+        private final Set<Entry> entries = new LinkedHashSet<>();
+    }
+
+    /**
+     * 查询时使用的不可变节点，子节点按字符排序后二分查找
+     */
+    private static class Node {
+        private final char[] keys;
+        private final Node[] children;
+        private final SuggestionVO[] top;
+
+        private Node(char[] keys, Node[] children, SuggestionVO[] top) {
+            this.keys = keys;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    private static class Entry {
+        private final SuggestionVO suggestion;
+        private final long sales;
+
+        private Entry(SuggestionVO suggestion, long sales) {
+            this.suggestion = suggestion;
+            this.sales = sales;
+        }
+    }
+}
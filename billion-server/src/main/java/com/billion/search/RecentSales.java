@@ -0,0 +1,54 @@
+package com.billion.search;
+
+import com.billion.entity.OrderDetail;
+import com.billion.mapper.OrderDetailMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 菜品、套餐的近期销量，用于搜索和输入提示的排序，每小时更新
+ */
+@Component
+public class RecentSales {
+
+    //统计近期销量的天数
+    private static final int SALES_DAYS = 30;
+
+    @Autowired
+    private OrderDetailMapper orderDetailMapper;
+
+    private volatile Map<Long, Long> dishSales = Collections.emptyMap();
+
+    private volatile Map<Long, Long> setmealSales = Collections.emptyMap();
+
+    public long getDishSales(Long dishId) {
+        return dishSales.getOrDefault(dishId, 0L);
+    }
+
+    public long getSetmealSales(Long setmealId) {
+        return setmealSales.getOrDefault(setmealId, 0L);
+    }
+
+    @PostConstruct
+    @Scheduled(cron = "0 0 * * * ?")
+    public void refresh() {
+        Map<Long, Long> latestDishSales = new HashMap<>();
+        Map<Long, Long> latestSetmealSales = new HashMap<>();
+        for (OrderDetail detail : orderDetailMapper.getSalesByOrderTimeGE(LocalDateTime.now().minusDays(SALES_DAYS))) {
+            if (detail.getDishId() != null) {
+                latestDishSales.merge(detail.getDishId(), detail.getNumber().longValue(), Long::sum);
+            } else if (detail.getSetmealId() != null) {
+                latestSetmealSales.merge(detail.getSetmealId(), detail.getNumber().longValue(), Long::sum);
+            }
+        }
+        dishSales = latestDishSales;
+        setmealSales = latestSetmealSales;
+    }
+}
@@ -0,0 +1,77 @@
+package com.billion.service;
+
+import com.billion.entity.BusinessStat;
+import com.billion.entity.Orders;
+import com.billion.entity.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface BusinessStatService {
+
+    /**
+     * 记录用户下单
+     * @param orders
+     */
+    void recordOrderSubmit(Orders orders);
+
+    /**
+     * 记录订单完成
+     * @param orderIds
+     */
+    void recordOrderComplete(List<Long> orderIds);
+
+    /**
+     * 撤销已完成订单的营业数据（已完成的订单被取消）
+     * @param orderId
+     */
+    void revertOrderComplete(Long orderId);
+
+    /**
+     * 记录新用户注册
+     * @param user
+     */
+    void recordUserRegister(User user);
+
+    /**
+     * 统计指定时间区间内的营业数据，按整点时段汇总
+     * @param begin
+     * @param end
+     * @return
+     */
+    BusinessStat getSum(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按天统计指定日期区间内的营业数据，每天一条，没有数据的日期各项为0
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<BusinessStat> getDaily(LocalDate begin, LocalDate end);
+
+    /**
+     * 按天逐条处理指定日期区间内的营业数据，每天一条，没有数据的日期各项为0，
+     * 结果不在内存中汇总，适用于大范围的日期区间
+     * @param begin
+     * @param end
+     * @param consumer
+     */
+    void streamDaily(LocalDate begin, LocalDate end, Consumer<BusinessStat> consumer);
+
+    /**
+     * 根据orders表和user表重算指定日期区间内的汇总数据
+     * @param begin
+     * @param end
+     */
+    void rebuild(LocalDate begin, LocalDate end);
+
+    /**
+     * 将汇总数据与orders表和user表的按天统计结果逐日核对，重算不一致的日期
+     * @param begin
+     * @param end
+     * @return 重算的日期
+     */
+    List<LocalDate> reconcile(LocalDate begin, LocalDate end);
+}
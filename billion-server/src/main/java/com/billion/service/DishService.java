@@ -5,6 +5,7 @@ import com.billion.dto.DishPageQueryDTO;
 import com.billion.entity.Dish;
 import com.billion.result.PageResult;
 import com.billion.vo.DishVO;
+import com.billion.vo.SuggestionVO;
 
 import java.util.List;
 
@@ -84,4 +85,12 @@ public interface DishService {
      * @return Result<List<DishVO>>
      */
     List<DishVO> listWithSearch(String query);
+
+    /**
+     * 根据用户输入的前缀提示菜品和套餐名称，支持全拼和拼音首字母
+     *
+     * @param prefix 已输入的内容
+     * @return
+     */
+    List<SuggestionVO> suggest(String prefix);
 }
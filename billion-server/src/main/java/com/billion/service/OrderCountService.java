@@ -0,0 +1,41 @@
+package com.billion.service;
+
+import com.billion.entity.Orders;
+
+import java.util.List;
+
+public interface OrderCountService {
+
+    /**
+     * 记录新订单，在事务中调用时事务提交后才计数
+     * @param orders
+     */
+    void recordSubmit(Orders orders);
+
+    /**
+     * 记录一批订单的状态变化，下单日期由订单id换算；在事务中调用时事务提交后才计数
+     * @param ids
+     * @param fromStatus
+     * @param toStatus
+     */
+    void recordTransit(List<Long> ids, Integer fromStatus, Integer toStatus);
+
+    /**
+     * 查询指定状态的订单数量
+     * @param status
+     * @return
+     */
+    Integer getCount(Integer status);
+
+    /**
+     * 查询今天下单的指定状态的订单数量
+     * @param status 为空时返回今天的全部订单数
+     * @return
+     */
+    Integer getTodayCount(Integer status);
+
+    /**
+     * 根据订单表校正计数
+     */
+    void reconcile();
+}
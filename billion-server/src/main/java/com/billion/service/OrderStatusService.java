@@ -0,0 +1,17 @@
+package com.billion.service;
+
+import com.billion.entity.Orders;
+
+import java.util.List;
+
+public interface OrderStatusService {
+
+    /**
+     * 批量修改订单状态，只修改仍处于原状态的订单
+     * @param ids 订单id
+     * @param fromStatus 原状态
+     * @param orders 修改后的状态及其他字段，字段含义与OrderMapper.update相同
+     * @return 实际被修改的订单id
+     */
+    List<Long> batchTransit(List<Long> ids, Integer fromStatus, Orders orders);
+}
@@ -69,4 +69,11 @@ public interface SetmealService {
      * @return
      */
     List<DishItemVO> getDishItemById(Long id);
+
+    /**
+     * 根据用户query搜索套餐
+     * @param query 搜索关键词
+     * @return
+     */
+    List<Setmeal> listWithSearch(String query);
 }
@@ -0,0 +1,233 @@
+package com.billion.service.impl;
+
+import com.billion.entity.BusinessStat;
+import com.billion.entity.Orders;
+import com.billion.entity.User;
+import com.billion.mapper.BusinessStatMapper;
+import com.billion.mapper.OrderMapper;
+import com.billion.mapper.UserMapper;
+import com.billion.service.BusinessStatService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 营业数据汇总，按小时增量维护business_stat表
+ */
+@Service
+@Slf4j
+public class BusinessStatServiceImpl implements BusinessStatService {
+
+    @Autowired
+    private BusinessStatMapper businessStatMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 记录用户下单，订单总数加一
+     * @param orders
+     */
+    public void recordOrderSubmit(Orders orders) {
+        BusinessStat businessStat = BusinessStat.builder()
+                .statTime(orders.getOrderTime().truncatedTo(ChronoUnit.HOURS))
+                .totalOrderCount(1)
+                .build();
+        businessStatMapper.increase(businessStat);
+    }
+
+    /**
+     * 记录订单完成，营业额和有效订单数累加到下单时间所在的时段
+     * @param orderIds
+     */
+    public void recordOrderComplete(List<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return;
+        }
+        businessStatMapper.increaseValidByOrderIds(orderIds, 1);
+    }
+
+    /**
+     * 撤销已完成订单的营业数据
+     * @param orderId
+     */
+    public void revertOrderComplete(Long orderId) {
+        businessStatMapper.increaseValidByOrderIds(Collections.singletonList(orderId), -1);
+    }
+
+    /**
+     * 记录新用户注册，新增用户数加一
+     * @param user
+     */
+    public void recordUserRegister(User user) {
+        BusinessStat businessStat = BusinessStat.builder()
+                .statTime(user.getCreateTime().truncatedTo(ChronoUnit.HOURS))
+                .newUserCount(1)
+                .build();
+        businessStatMapper.increase(businessStat);
+    }
+
+    /**
+     * 统计指定时间区间内的营业数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    public BusinessStat getSum(LocalDateTime begin, LocalDateTime end) {
+        return businessStatMapper.sumByTime(begin.truncatedTo(ChronoUnit.HOURS), end);
+    }
+
+    /**
+     * 按天统计指定日期区间内的营业数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    public List<BusinessStat> getDaily(LocalDate begin, LocalDate end) {
+        List<BusinessStat> list = businessStatMapper.listDaily(LocalDateTime.of(begin, LocalTime.MIN), LocalDateTime.of(end, LocalTime.MAX));
+        return fillDaily(begin, end, toDateMap(list));
+    }
+
+    /**
+     * 按天逐条处理指定日期区间内的营业数据
+     * @param begin
+     * @param end
+     * @param consumer
+     */
+    public void streamDaily(LocalDate begin, LocalDate end, Consumer<BusinessStat> consumer) {
+        //下一个待输出的日期，结果集按日期升序，中间缺少的日期补0
+        LocalDate[] next = {begin};
+        businessStatMapper.streamDaily(LocalDateTime.of(begin, LocalTime.MIN), LocalDateTime.of(end, LocalTime.MAX), context -> {
+            BusinessStat businessStat = context.getResultObject();
+            LocalDate date = businessStat.getStatTime().toLocalDate();
+            for (; next[0].isBefore(date); next[0] = next[0].plusDays(1)) {
+                consumer.accept(emptyStat(next[0]));
+            }
+            consumer.accept(businessStat);
+            next[0] = date.plusDays(1);
+        });
+        for (; !next[0].isAfter(end); next[0] = next[0].plusDays(1)) {
+            consumer.accept(emptyStat(next[0]));
+        }
+    }
+
+    /**
+     * 重算指定日期区间内的汇总数据
+     * @param begin
+     * @param end
+     */
+    @Transactional
+    public void rebuild(LocalDate begin, LocalDate end) {
+        log.info("重算营业数据汇总：{}至{}", begin, end);
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end.plusDays(1), LocalTime.MIN);
+
+        businessStatMapper.deleteByTime(beginTime, endTime);
+        businessStatMapper.insertOrderStatByTime(beginTime, endTime);
+        businessStatMapper.insertUserStatByTime(beginTime, endTime);
+    }
+
+    /**
+     * 逐日核对汇总数据，重算不一致的日期
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Transactional
+    public List<LocalDate> reconcile(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end.plusDays(1), LocalTime.MIN);
+
+        //根据orders表和user表按天统计，各一次查询
+        Map<LocalDate, BusinessStat> actualMap = toDateMap(orderMapper.getDailyStatistics(beginTime, endTime));
+        for (BusinessStat newUser : userMapper.getDailyNewUser(beginTime, endTime)) {
+            BusinessStat actual = actualMap.computeIfAbsent(newUser.getStatTime().toLocalDate(), date -> new BusinessStat());
+            actual.setNewUserCount(newUser.getNewUserCount());
+        }
+
+        List<BusinessStat> actualList = fillDaily(begin, end, actualMap);
+        List<BusinessStat> statList = getDaily(begin, end);
+
+        List<LocalDate> driftDates = new ArrayList<>();
+        for (int i = 0; i < actualList.size(); i++) {
+            BusinessStat actual = actualList.get(i);
+            BusinessStat stat = statList.get(i);
+            if (actual.getTurnover().compareTo(stat.getTurnover()) != 0
+                    || !actual.getValidOrderCount().equals(stat.getValidOrderCount())
+                    || !actual.getTotalOrderCount().equals(stat.getTotalOrderCount())
+                    || !actual.getNewUserCount().equals(stat.getNewUserCount())) {
+                log.warn("营业数据汇总不一致，日期：{}，汇总：{}，实际：{}", actual.getStatTime().toLocalDate(), stat, actual);
+                driftDates.add(actual.getStatTime().toLocalDate());
+            }
+        }
+
+        for (LocalDate date : driftDates) {
+            rebuild(date, date);
+        }
+        return driftDates;
+    }
+
+    /**
+     * 按日期建立索引
+     * @param list
+     * @return
+     */
+    private Map<LocalDate, BusinessStat> toDateMap(List<BusinessStat> list) {
+        Map<LocalDate, BusinessStat> map = new HashMap<>();
+        for (BusinessStat businessStat : list) {
+            map.put(businessStat.getStatTime().toLocalDate(), businessStat);
+        }
+        return map;
+    }
+
+    /**
+     * 补全从begin到end的每一天，没有数据的日期及各项为空的值补0
+     * @param begin
+     * @param end
+     * @param map
+     * @return
+     */
+    private List<BusinessStat> fillDaily(LocalDate begin, LocalDate end, Map<LocalDate, BusinessStat> map) {
+        List<BusinessStat> list = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            BusinessStat businessStat = map.getOrDefault(date, new BusinessStat());
+            list.add(BusinessStat.builder()
+                    .statTime(date.atStartOfDay())
+                    .turnover(businessStat.getTurnover() == null ? BigDecimal.ZERO : businessStat.getTurnover())
+                    .validOrderCount(businessStat.getValidOrderCount() == null ? 0 : businessStat.getValidOrderCount())
+                    .totalOrderCount(businessStat.getTotalOrderCount() == null ? 0 : businessStat.getTotalOrderCount())
+                    .newUserCount(businessStat.getNewUserCount() == null ? 0 : businessStat.getNewUserCount())
+                    .build());
+        }
+        return list;
+    }
+
+    /**
+     * 没有数据的日期，各项为0
+     * @param date
+     * @return
+     */
+    private BusinessStat emptyStat(LocalDate date) {
+        return BusinessStat.builder()
+                .statTime(date.atStartOfDay())
+                .turnover(BigDecimal.ZERO)
+                .validOrderCount(0)
+                .totalOrderCount(0)
+                .newUserCount(0)
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package com.billion.service.impl;
 
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.billion.catalog.DishCatalog;
 import com.billion.constant.MessageConstant;
 import com.billion.constant.StatusConstant;
 import com.billion.dto.CategoryDTO;
@@ -33,6 +34,8 @@ public class CategoryServiceImpl implements CategoryService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private DishCatalog dishCatalog;
 
     /**
      * 新增分类
@@ -103,6 +106,9 @@ public class CategoryServiceImpl implements CategoryService {
         //category.setUpdateUser(BaseContext.getCurrentId());
 
         categoryMapper.update(category);
+
+        //分类名称用于菜品搜索
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -118,6 +124,8 @@ public class CategoryServiceImpl implements CategoryService {
                 //.updateUser(BaseContext.getCurrentId())
                 .build();
         categoryMapper.update(category);
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
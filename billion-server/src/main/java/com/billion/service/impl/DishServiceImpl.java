@@ -2,7 +2,10 @@ package com.billion.service.impl;
 
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
-import com.billion.algrithm.Recommendation;
+import com.billion.algrithm.InteractionHistory;
+import com.billion.algrithm.RecommendationBatcher;
+import com.billion.algrithm.RecommendationCache;
+import com.billion.catalog.DishCatalog;
 import com.billion.constant.MessageConstant;
 import com.billion.constant.StatusConstant;
 import com.billion.dto.DishDTO;
@@ -10,9 +13,13 @@ import com.billion.dto.DishPageQueryDTO;
 import com.billion.entity.*;
 import com.billion.exception.DeletionNotAllowedException;
 import com.billion.mapper.*;
+import com.billion.properties.RecommendProperties;
 import com.billion.result.PageResult;
+import com.billion.search.DishSearchIndex;
+import com.billion.search.DishSuggester;
 import com.billion.service.DishService;
 import com.billion.vo.DishVO;
+import com.billion.vo.SuggestionVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,9 +42,22 @@ public class DishServiceImpl implements DishService {
     @Autowired
     private SetmealMapper setmealMapper;
     @Autowired
-    private OrderDetailMapper orderDetailMapper;
+    private InteractionHistory interactionHistory;
     @Autowired
-    private Recommendation recommendation;
+    private RecommendationBatcher recommendationBatcher;
+    @Autowired
+    private RecommendationCache recommendationCache;
+    @Autowired
+    private DishCatalog dishCatalog;
+    @Autowired
+    private RecommendProperties recommendProperties;
+    @Autowired
+    private DishSearchIndex dishSearchIndex;
+    @Autowired
+    private DishSuggester dishSuggester;
+
+    //搜索返回的最大菜品数
+    private static final int SEARCH_LIMIT = 50;
 
     private final int[] defaultRecommendation = new int[]{1, 2, 3, 4,
             5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
@@ -68,6 +88,8 @@ public class DishServiceImpl implements DishService {
             //向口味表插入n条数据
             dishFlavorMapper.insertBatch(flavors);
         }
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -111,6 +133,8 @@ public class DishServiceImpl implements DishService {
             //删除菜品关联的口味数据
             dishFlavorMapper.deleteByDishId(id);
         }
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -158,6 +182,8 @@ public class DishServiceImpl implements DishService {
             //向口味表插入n条数据
             dishFlavorMapper.insertBatch(flavors);
         }
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -190,6 +216,8 @@ public class DishServiceImpl implements DishService {
                 }
             }
         }
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -236,24 +264,22 @@ public class DishServiceImpl implements DishService {
      * @return
      */
     public List<DishVO> listWithRecommendation(Long userId) {
-        List<Integer> dishIds = orderDetailMapper.getRecentByUserId(userId);
-        int[] rerankedDishIds;
-        if (dishIds.isEmpty()) {
-            rerankedDishIds = this.defaultRecommendation;
-        } else {
-            long[][] inputs = new long[1][dishIds.size()];
-            for (int i = 0; i < dishIds.size(); i++) {
-                inputs[0][i] = dishIds.get(i);
-            }
-            int[][] recommendationResult = recommendation.getRecommendation(inputs);
-            rerankedDishIds = recommendationResult[0];
+        //用户的点单历史没有变化时，直接使用缓存的推荐结果（包括离线批量推荐的结果），没有时才在线推理
+        int[] rerankedDishIds = recommendationCache.get(userId);
+        if (rerankedDishIds == null) {
+            rerankedDishIds = recommend(userId);
+            recommendationCache.put(userId, rerankedDishIds);
         }
 
         List<DishVO> dishVOList = new ArrayList<>();
 
         for (int dishId : rerankedDishIds) {
-            //根据菜品id查询对应的口味
-            Dish dish = dishMapper.getById((long) dishId);
+            //从内存中的菜品目录查询，不访问数据库
+            Dish dish = dishCatalog.getDish(dishId);
+            if (dish == null) {
+                //模型的类别中包含已删除或不存在的菜品
+                continue;
+            }
 
             DishVO dishVO = new DishVO();
             BeanUtils.copyProperties(dish ,dishVO);
@@ -264,6 +290,21 @@ public class DishServiceImpl implements DishService {
         return dishVOList;
     }
 
+    /**
+     * 根据用户最近点过的菜品进行推理，得到推荐的菜品id
+     * @param userId
+     * @return
+     */
+    private int[] recommend(Long userId) {
+        long[] sequence = interactionHistory.get(userId);
+        if (sequence.length == 0) {
+            return this.defaultRecommendation;
+        }
+
+        //与其他并发请求合批推理，只取得分最高的若干个菜品，不对全部类别排序
+        return recommendationBatcher.recommend(sequence, recommendProperties.getTopK());
+    }
+
     /**
      * 根据用户query搜索菜品
      *
@@ -271,7 +312,31 @@ public class DishServiceImpl implements DishService {
      * @return Result<List<DishVO>>
      */
     public List<DishVO> listWithSearch(String query) {
-        // TODO: implement this
-        return null;
+        //使用内存中的倒排索引和菜品目录，不访问数据库
+        List<DishVO> dishVOList = new ArrayList<>();
+        for (Long id : dishSearchIndex.searchDishes(query, SEARCH_LIMIT)) {
+            Dish dish = dishCatalog.getDish(id);
+            if (dish == null) {
+                continue;
+            }
+
+            DishVO dishVO = new DishVO();
+            BeanUtils.copyProperties(dish, dishVO);
+            dishVO.setCategoryName(dishCatalog.getCategoryName(dish.getCategoryId()));
+            dishVO.setFlavors(dishCatalog.getFlavors(id));
+            dishVOList.add(dishVO);
+        }
+        return dishVOList;
+    }
+
+    /**
+     * 根据用户输入的前缀提示菜品和套餐名称，支持全拼和拼音首字母
+     *
+     * @param prefix 已输入的内容
+     * @return
+     */
+    public List<SuggestionVO> suggest(String prefix) {
+        //使用内存中的前缀树，不访问数据库
+        return dishSuggester.suggest(prefix, DishSuggester.MAX_SUGGESTIONS);
     }
 }
@@ -0,0 +1,201 @@
+package com.billion.service.impl;
+
+import com.billion.dto.OrderStatusCountDTO;
+import com.billion.entity.Orders;
+import com.billion.mapper.OrderMapper;
+import com.billion.service.OrderCountService;
+import com.billion.utils.SnowflakeIdGenerator;
+import com.billion.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单数量计数，按状态保存在Redis的hash中，所有实例共用，供管理端工作台和订单管理页面频繁查询
+ * 订单状态变化的事务提交后用HINCRBY更新计数，并定期根据订单表校正
+ */
+@Service
+@Slf4j
+public class OrderCountServiceImpl implements OrderCountService {
+
+    //全部订单按状态计数，field为订单状态，value为订单数量
+    public static final String TOTAL_KEY = "order:count";
+
+    //按下单日期、状态计数，完整的key为order:count:{下单日期}
+    public static final String DAILY_KEY_PREFIX = "order:count:";
+
+    //按日期的计数只需要保留今天的，过期后自动删除
+    private static final Duration DAILY_TTL = Duration.ofDays(2);
+
+    //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+    private static final int STATUS_LENGTH = Orders.CANCELLED + 1;
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 启动时根据订单表初始化计数
+     */
+    @PostConstruct
+    public void init() {
+        reconcile();
+    }
+
+    /**
+     * 记录新订单
+     * @param orders
+     */
+    public void recordSubmit(Orders orders) {
+        LocalDate date = orders.getOrderTime().toLocalDate();
+        Integer status = orders.getStatus();
+        TransactionUtils.afterCommit(() -> {
+            Map<LocalDate, long[]> deltas = new HashMap<>();
+            deltas.computeIfAbsent(date, d -> new long[STATUS_LENGTH])[status]++;
+            increment(deltas);
+        });
+    }
+
+    /**
+     * 记录一批订单的状态变化
+     * @param ids
+     * @param fromStatus
+     * @param toStatus
+     */
+    public void recordTransit(List<Long> ids, Integer fromStatus, Integer toStatus) {
+        if (fromStatus.equals(toStatus) || ids.isEmpty()) {
+            return;
+        }
+        //按下单日期合并后再更新，一批订单只访问一次Redis
+        Map<LocalDate, long[]> deltas = new HashMap<>();
+        for (Long id : ids) {
+            LocalDate date = Instant.ofEpochMilli(SnowflakeIdGenerator.timestampOf(id)).atZone(ZoneId.systemDefault()).toLocalDate();
+            long[] delta = deltas.computeIfAbsent(date, d -> new long[STATUS_LENGTH]);
+            delta[fromStatus]--;
+            delta[toStatus]++;
+        }
+        TransactionUtils.afterCommit(() -> increment(deltas));
+    }
+
+    /**
+     * 查询指定状态的订单数量
+     * @param status
+     * @return
+     */
+    public Integer getCount(Integer status) {
+        Object count = stringRedisTemplate.opsForHash().get(TOTAL_KEY, status.toString());
+        return count == null ? 0 : Integer.valueOf(count.toString());
+    }
+
+    /**
+     * 查询今天下单的指定状态的订单数量
+     * @param status
+     * @return
+     */
+    public Integer getTodayCount(Integer status) {
+        String key = dailyKey(LocalDate.now());
+        if (status != null) {
+            Object count = stringRedisTemplate.opsForHash().get(key, status.toString());
+            return count == null ? 0 : Integer.valueOf(count.toString());
+        }
+        long sum = 0;
+        for (Object count : stringRedisTemplate.opsForHash().values(key)) {
+            sum += Long.parseLong(count.toString());
+        }
+        return (int) sum;
+    }
+
+    /**
+     * 根据订单表校正全部订单和今天订单的计数，直接写入实际数量，多个实例同时校正结果相同
+     * 校正期间发生的状态变化可能产生短暂误差，在下次校正时修正；今天以前的计数由过期时间清除
+     */
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        correct(TOTAL_KEY, orderMapper.countGroupByStatus(null));
+        String dailyKey = dailyKey(today);
+        correct(dailyKey, orderMapper.countGroupByStatus(LocalDateTime.of(today, LocalTime.MIN)));
+        stringRedisTemplate.expire(dailyKey, DAILY_TTL);
+    }
+
+    /**
+     * 将计数修正为订单表中的数量
+     * @param key
+     * @param list
+     */
+    private void correct(String key, List<OrderStatusCountDTO> list) {
+        long[] actual = new long[STATUS_LENGTH];
+        for (OrderStatusCountDTO dto : list) {
+            actual[dto.getStatus()] = dto.getCount();
+        }
+        Map<Object, Object> counts = stringRedisTemplate.opsForHash().entries(key);
+        Map<String, String> values = new HashMap<>();
+        for (int status = 0; status < STATUS_LENGTH; status++) {
+            Object count = counts.get(String.valueOf(status));
+            long diff = actual[status] - (count == null ? 0 : Long.parseLong(count.toString()));
+            if (diff != 0) {
+                log.info("校正订单计数，key：{}，状态：{}，差值：{}", key, status, diff);
+            }
+            values.put(String.valueOf(status), String.valueOf(actual[status]));
+        }
+        stringRedisTemplate.opsForHash().putAll(key, values);
+    }
+
+    /**
+     * 用一次管道更新全部订单的计数，下单日期不早于今天的同时更新当天的计数
+     * @param deltas 按下单日期、状态的变化量
+     */
+    private void increment(Map<LocalDate, long[]> deltas) {
+        LocalDate today = LocalDate.now();
+        long[] total = new long[STATUS_LENGTH];
+        for (long[] delta : deltas.values()) {
+            for (int status = 0; status < STATUS_LENGTH; status++) {
+                total[status] += delta[status];
+            }
+        }
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                hashIncrement(operations, TOTAL_KEY, total);
+                for (Map.Entry<LocalDate, long[]> entry : deltas.entrySet()) {
+                    if (entry.getKey().isBefore(today)) {
+                        continue;
+                    }
+                    String key = dailyKey(entry.getKey());
+                    hashIncrement(operations, key, entry.getValue());
+                    operations.expire(key, DAILY_TTL);
+                }
+                return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void hashIncrement(RedisOperations operations, String key, long[] delta) {
+        for (int status = 0; status < STATUS_LENGTH; status++) {
+            if (delta[status] != 0) {
+                operations.opsForHash().increment(key, String.valueOf(status), delta[status]);
+            }
+        }
+    }
+
+    private static String dailyKey(LocalDate date) {
+        return DAILY_KEY_PREFIX + date;
+    }
+}
@@ -5,6 +5,7 @@ import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.billion.algrithm.InteractionHistory;
 import com.billion.constant.MessageConstant;
 import com.billion.context.BaseContext;
 import com.billion.dto.*;
@@ -14,8 +15,14 @@ import com.billion.exception.OrderBusinessException;
 import com.billion.exception.ShoppingCartBusinessException;
 import com.billion.mapper.*;
 import com.billion.result.PageResult;
+import com.billion.service.BusinessStatService;
+import com.billion.service.OrderCountService;
 import com.billion.service.OrderService;
+import com.billion.statemachine.OrderEvent;
+import com.billion.statemachine.OrderStateMachine;
+import com.billion.task.OrderTimeoutScheduler;
 import com.billion.utils.HttpClientUtil;
+import com.billion.utils.IdGenerator;
 import com.billion.utils.WeChatPayUtil;
 import com.billion.vo.OrderPaymentVO;
 import com.billion.vo.OrderStatisticsVO;
@@ -33,6 +40,7 @@ import org.springframework.util.CollectionUtils;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +64,21 @@ public class OrderServiceImpl implements OrderService {
     private WeChatPayUtil weChatPayUtil;
     @Autowired
     private WebSocketServer webSocketServer;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private BusinessStatService businessStatService;
+    @Autowired
+    private OrderTimeoutScheduler orderTimeoutScheduler;
+    @Autowired
+    private OrderCountService orderCountService;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private InteractionHistory interactionHistory;
+
+    //完整手机号的位数
+    private static final int PHONE_LENGTH = 11;
 
     /**
      * 用户下单
@@ -93,7 +116,9 @@ public class OrderServiceImpl implements OrderService {
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID);
         orders.setStatus(Orders.PENDING_PAYMENT);
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));
+        //订单id由雪花算法生成，订单号即订单id，可直接换算回主键
+        orders.setId(idGenerator.nextId());
+        orders.setNumber(String.valueOf(orders.getId()));
         orders.setAddress(addressBook.getDetail());
         orders.setPhone(addressBook.getPhone());
         orders.setConsignee(addressBook.getConsignee());
@@ -115,6 +140,13 @@ public class OrderServiceImpl implements OrderService {
         //4. 清空当前用户的购物车数据
         shoppingCartMapper.deleteByUserId(userId);
 
+        //登记支付截止时间，超时未支付自动取消
+        orderTimeoutScheduler.register(orders);
+        orderCountService.recordSubmit(orders);
+
+        //更新营业数据汇总，放在事务最后以缩短汇总行的锁定时间
+        businessStatService.recordOrderSubmit(orders);
+
         //5. 封装VO返回结果
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder()
                 .id(orders.getId())
@@ -235,28 +267,55 @@ public class OrderServiceImpl implements OrderService {
         Long userId = BaseContext.getCurrentId();
 
         // 根据订单号查询当前用户的订单
-        Orders ordersDB = orderMapper.getByNumberAndUserId(outTradeNo, userId);
+        Orders ordersDB = getByNumber(outTradeNo, userId);
 
-        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
+        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间，只有待付款的订单可以修改
         Orders orders = Orders.builder()
                 .id(ordersDB.getId())
-                .status(Orders.TO_BE_CONFIRMED)
                 .payStatus(Orders.PAID)
                 .checkoutTime(LocalDateTime.now())
                 .build();
 
-        orderMapper.update(orders);
+        if (!orderStateMachine.fire(orders, OrderEvent.PAY)) {
+            // 重复的支付通知，或订单已超时取消
+            log.warn("订单不是待付款状态，忽略支付通知：{}", outTradeNo);
+            return;
+        }
+
+        //已支付，撤销支付超时
+        orderTimeoutScheduler.unregister(ordersDB.getId());
 
         //通过websocket向客户端浏览器推送消息 type orderId content
         Map map = new HashMap();
         map.put("type",1); // 1表示来单提醒 2表示客户催单
-        map.put("orderId",ordersDB.getId());
+        map.put("orderId",String.valueOf(ordersDB.getId()));//订单id超过JavaScript的精确范围，以字符串发送
         map.put("content","订单号：" + outTradeNo);
 
         String json = JSON.toJSONString(map);
         webSocketServer.sendToAllClient(json);
     }
 
+    /**
+     * 根据订单号查询订单
+     * 订单号由订单id生成，直接按主键查询；无法换算的历史订单号再按订单号查询
+     *
+     * @param number
+     * @param userId
+     * @return
+     */
+    private Orders getByNumber(String number, Long userId) {
+        try {
+            Orders orders = orderMapper.getById(Long.valueOf(number));
+            if (orders != null && number.equals(orders.getNumber())
+                    && (userId == null || userId.equals(orders.getUserId()))) {
+                return orders;
+            }
+        } catch (NumberFormatException e) {
+            log.debug("订单号不是订单id：{}", number);
+        }
+        return orderMapper.getByNumberAndUserId(number, userId);
+    }
+
     /**
      * 用户端订单分页查询
      *
@@ -280,15 +339,13 @@ public class OrderServiceImpl implements OrderService {
 
         // 查询出订单明细，并封装入OrderVO进行响应
         if (page != null && page.getTotal() > 0) {
-            for (Orders orders : page) {
-                Long orderId = orders.getId();// 订单id
-
-                // 查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orderId);
+            // 一次性批量查询当前页所有订单的明细
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(page.getResult());
 
+            for (Orders orders : page) {
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
-                orderVO.setOrderDetailList(orderDetails);
+                orderVO.setOrderDetailList(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
 
                 list.add(orderVO);
             }
@@ -322,6 +379,7 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional(rollbackFor = Exception.class)
     public void userCancelById(Long id) throws Exception {
         // 根据id查询订单
         Orders ordersDB = orderMapper.getById(id);
@@ -331,32 +389,36 @@ public class OrderServiceImpl implements OrderService {
             throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
         }
 
-        //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
-        if (ordersDB.getStatus() > 2) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
+        // 更新订单状态、取消原因、取消时间，只有待付款、待接单的订单可以取消，且订单状态未被并发修改
         Orders orders = new Orders();
         orders.setId(ordersDB.getId());
+        orders.setCancelReason("用户取消");
+        orders.setCancelTime(LocalDateTime.now());
 
-        // 订单处于待接单状态下取消，需要进行退款
-        if (ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)) {
+        // 订单处于待接单状态下取消，需要进行退款，支付状态修改为 退款
+        boolean refund = ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED);
+        if (refund) {
+            orders.setPayStatus(Orders.REFUND);
+        }
+
+        if (!orderStateMachine.fire(orders, OrderEvent.USER_CANCEL, ordersDB.getStatus())) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+
+        // 状态修改成功后再退款，退款失败时事务回滚
+        if (refund) {
             //调用微信支付退款接口
             weChatPayUtil.refund(
                     ordersDB.getNumber(), //商户订单号
                     ordersDB.getNumber(), //商户退款单号
                     new BigDecimal(0.01),//退款金额，单位 元
                     new BigDecimal(0.01));//原订单金额
-
-            //支付状态修改为 退款
-            orders.setPayStatus(Orders.REFUND);
         }
 
-        // 更新订单状态、取消原因、取消时间
-        orders.setStatus(Orders.CANCELLED);
-        orders.setCancelReason("用户取消");
-        orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
+        // 待付款的订单已取消，撤销支付超时
+        if (ordersDB.getStatus().equals(Orders.PENDING_PAYMENT)) {
+            orderTimeoutScheduler.unregister(ordersDB.getId());
+        }
     }
 
     /**
@@ -394,6 +456,19 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     public PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO) {
+        // 订单号按前缀匹配，完整手机号精确匹配，手机号片段按开头或结尾匹配，均可走索引
+        String number = ordersPageQueryDTO.getNumber();
+        if (number != null) {
+            ordersPageQueryDTO.setNumber(escapeLike(number.trim()));
+        }
+        String phone = ordersPageQueryDTO.getPhone();
+        if (phone != null) {
+            phone = phone.trim();
+            ordersPageQueryDTO.setPhone(phone.length() < PHONE_LENGTH ? escapeLike(phone) : phone);
+            ordersPageQueryDTO.setPhoneReversed(phone.length() < PHONE_LENGTH
+                    ? escapeLike(new StringBuilder(phone).reverse().toString()) : null);
+        }
+
         PageHelper.startPage(ordersPageQueryDTO.getPage(), ordersPageQueryDTO.getPageSize());
 
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
@@ -404,17 +479,30 @@ public class OrderServiceImpl implements OrderService {
         return new PageResult(page.getTotal(), orderVOList);
     }
 
+    /**
+     * 转义LIKE中的通配符，使搜索词按字面匹配
+     *
+     * @param value
+     * @return
+     */
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     private List<OrderVO> getOrderVOList(Page<Orders> page) {
         // 需要返回订单菜品信息，自定义OrderVO响应结果
         List<OrderVO> orderVOList = new ArrayList<>();
 
         List<Orders> ordersList = page.getResult();
         if (!CollectionUtils.isEmpty(ordersList)) {
+            // 一次性批量查询当前页所有订单的明细
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+
             for (Orders orders : ordersList) {
                 // 将共同字段复制到OrderVO
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
-                String orderDishes = getOrderDishesStr(orders);
+                String orderDishes = getOrderDishesStr(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
 
                 // 将订单菜品信息封装到orderVO中，并添加到orderVOList
                 orderVO.setOrderDishes(orderDishes);
@@ -425,15 +513,29 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 根据订单id获取菜品信息字符串
+     * 批量查询订单明细，并按订单id分组
      *
-     * @param orders
+     * @param ordersList
      * @return
      */
-    private String getOrderDishesStr(Orders orders) {
-        // 查询订单菜品详情信息（订单中的菜品和数量）
-        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(orders.getId());
+    private Map<Long, List<OrderDetail>> getOrderDetailMap(List<Orders> ordersList) {
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        if (orderIds.isEmpty()) {
+            return new HashMap<>();
+        }
 
+        // select * from order_detail where order_id in (?,?,?)
+        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderIds(orderIds);
+        return orderDetailList.stream().collect(Collectors.groupingBy(OrderDetail::getOrderId));
+    }
+
+    /**
+     * 根据订单明细获取菜品信息字符串
+     *
+     * @param orderDetailList
+     * @return
+     */
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList) {
         // 将每一条订单菜品信息拼接为字符串（格式：宫保鸡丁*3；）
         List<String> orderDishList = orderDetailList.stream().map(x -> {
             String orderDish = x.getName() + "*" + x.getNumber() + ";";
@@ -450,10 +552,10 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     public OrderStatisticsVO statistics() {
-        // 根据状态，分别查询出待接单、待派送、派送中的订单数量
-        Integer toBeConfirmed = orderMapper.countStatus(Orders.TO_BE_CONFIRMED);
-        Integer confirmed = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryInProgress = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
+        // 根据状态，分别取出待接单、待派送、派送中的订单数量，数量由内存计数得到，不查询数据库
+        Integer toBeConfirmed = orderCountService.getCount(Orders.TO_BE_CONFIRMED);
+        Integer confirmed = orderCountService.getCount(Orders.CONFIRMED);
+        Integer deliveryInProgress = orderCountService.getCount(Orders.DELIVERY_IN_PROGRESS);
 
         // 将查询出的数据封装到orderStatisticsVO中响应
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
@@ -471,10 +573,12 @@ public class OrderServiceImpl implements OrderService {
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
         Orders orders = Orders.builder()
                 .id(ordersConfirmDTO.getId())
-                .status(Orders.CONFIRMED)
                 .build();
 
-        orderMapper.update(orders);
+        // 订单只有存在且状态为2（待接单）才可以接单
+        if (!orderStateMachine.fire(orders, OrderEvent.CONFIRM)) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
     }
 
     /**
@@ -482,18 +586,22 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param ordersRejectionDTO
      */
+    @Transactional(rollbackFor = Exception.class)
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) throws Exception {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(ordersRejectionDTO.getId());
+        // 拒单需要退款，根据订单id更新订单状态、拒单原因、取消时间
+        Orders orders = new Orders();
+        orders.setId(ordersRejectionDTO.getId());
+        orders.setRejectionReason(ordersRejectionDTO.getRejectionReason());
+        orders.setCancelTime(LocalDateTime.now());
 
         // 订单只有存在且状态为2（待接单）才可以拒单
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)) {
+        if (!orderStateMachine.fire(orders, OrderEvent.REJECT)) {
             throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
         }
 
-        //支付状态
-        Integer payStatus = ordersDB.getPayStatus();
-        if (payStatus == Orders.PAID) {
+        // 状态修改成功后查询支付状态，退款失败时事务回滚
+        Orders ordersDB = orderMapper.getById(ordersRejectionDTO.getId());
+        if (Orders.PAID.equals(ordersDB.getPayStatus())) {
             //用户已支付，需要退款
             String refund = weChatPayUtil.refund(
                     ordersDB.getNumber(),
@@ -502,15 +610,6 @@ public class OrderServiceImpl implements OrderService {
                     new BigDecimal(0.01));
             log.info("申请退款：{}", refund);
         }
-
-        // 拒单需要退款，根据订单id更新订单状态、拒单原因、取消时间
-        Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        orders.setStatus(Orders.CANCELLED);
-        orders.setRejectionReason(ordersRejectionDTO.getRejectionReason());
-        orders.setCancelTime(LocalDateTime.now());
-
-        orderMapper.update(orders);
     }
 
     /**
@@ -518,14 +617,30 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param ordersCancelDTO
      */
+    @Transactional(rollbackFor = Exception.class)
     public void cancel(OrdersCancelDTO ordersCancelDTO) throws Exception {
         // 根据id查询订单
         Orders ordersDB = orderMapper.getById(ordersCancelDTO.getId());
 
+        // 校验订单是否存在
+        if (ordersDB == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+
+        // 管理端取消订单，根据订单id更新订单状态、取消原因、取消时间，要求订单状态未被并发修改
+        Orders orders = new Orders();
+        orders.setId(ordersCancelDTO.getId());
+        orders.setCancelReason(ordersCancelDTO.getCancelReason());
+        orders.setCancelTime(LocalDateTime.now());
+
+        if (!orderStateMachine.fire(orders, OrderEvent.ADMIN_CANCEL, ordersDB.getStatus())) {
+            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
+        }
+
         //支付状态
         Integer payStatus = ordersDB.getPayStatus();
         if (payStatus == 1) {
-            //用户已支付，需要退款
+            //用户已支付，需要退款，退款失败时事务回滚
             String refund = weChatPayUtil.refund(
                     ordersDB.getNumber(),
                     ordersDB.getNumber(),
@@ -534,13 +649,15 @@ public class OrderServiceImpl implements OrderService {
             log.info("申请退款：{}", refund);
         }
 
-        // 管理端取消订单需要退款，根据订单id更新订单状态、取消原因、取消时间
-        Orders orders = new Orders();
-        orders.setId(ordersCancelDTO.getId());
-        orders.setStatus(Orders.CANCELLED);
-        orders.setCancelReason(ordersCancelDTO.getCancelReason());
-        orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
+        // 已完成的订单被取消，从营业数据中扣除
+        if (Orders.COMPLETED.equals(ordersDB.getStatus())) {
+            businessStatService.revertOrderComplete(ordersDB.getId());
+        }
+
+        // 待付款的订单已取消，撤销支付超时
+        if (Orders.PENDING_PAYMENT.equals(ordersDB.getStatus())) {
+            orderTimeoutScheduler.unregister(ordersDB.getId());
+        }
     }
 
     /**
@@ -549,20 +666,14 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void delivery(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
+        // 更新订单状态,状态转为派送中
+        Orders orders = new Orders();
+        orders.setId(id);
 
         // 校验订单是否存在，并且状态为3
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.CONFIRMED)) {
+        if (!orderStateMachine.fire(orders, OrderEvent.DELIVER)) {
             throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
         }
-
-        Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为派送中
-        orders.setStatus(Orders.DELIVERY_IN_PROGRESS);
-
-        orderMapper.update(orders);
     }
 
     /**
@@ -571,21 +682,19 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     public void complete(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
+        // 更新订单状态,状态转为完成
+        Orders orders = new Orders();
+        orders.setId(id);
+        orders.setDeliveryTime(LocalDateTime.now());
 
         // 校验订单是否存在，并且状态为4
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)) {
+        if (!orderStateMachine.fire(orders, OrderEvent.COMPLETE)) {
             throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
         }
 
-        Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为完成
-        orders.setStatus(Orders.COMPLETED);
-        orders.setDeliveryTime(LocalDateTime.now());
-
-        orderMapper.update(orders);
+        businessStatService.recordOrderComplete(Collections.singletonList(id));
+        //订单完成，追加到用户的点单历史
+        interactionHistory.append(Collections.singletonList(id));
     }
 
     /**
@@ -603,7 +712,7 @@ public class OrderServiceImpl implements OrderService {
 
         Map map = new HashMap();
         map.put("type",2); //1表示来单提醒 2表示客户催单
-        map.put("orderId",id);
+        map.put("orderId",String.valueOf(id));
         map.put("content","订单号：" + ordersDB.getNumber());
 
         //通过websocket向客户端浏览器推送消息
@@ -0,0 +1,59 @@
+package com.billion.service.impl;
+
+import com.billion.entity.Orders;
+import com.billion.mapper.OrderMapper;
+import com.billion.service.OrderCountService;
+import com.billion.service.OrderStatusService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@Slf4j
+public class OrderStatusServiceImpl implements OrderStatusService {
+
+    //每批修改的订单数，控制单条语句的长度和单个事务的锁定范围
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private OrderCountService orderCountService;
+
+    /**
+     * 批量修改订单状态
+     * 按批次执行，每批在独立事务中先锁定仍处于原状态的订单，再修改这些订单，返回的id即为实际被修改的订单
+     * @param ids
+     * @param fromStatus
+     * @param orders
+     * @return
+     */
+    public List<Long> batchTransit(List<Long> ids, Integer fromStatus, Orders orders) {
+        List<Long> changedIds = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return changedIds;
+        }
+
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Long> batchIds = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            List<Long> lockedIds = transactionTemplate.execute(status -> {
+                List<Long> result = orderMapper.lockIdsByStatus(batchIds, fromStatus);
+                if (!result.isEmpty()) {
+                    orderMapper.updateByIdsAndStatus(result, fromStatus, orders);
+                    orderCountService.recordTransit(result, fromStatus, orders.getStatus());
+                }
+                return result;
+            });
+            changedIds.addAll(lockedIds);
+        }
+
+        log.info("批量修改订单状态：{} -> {}，待处理：{}，已修改：{}", fromStatus, orders.getStatus(), ids.size(), changedIds.size());
+        return changedIds;
+    }
+}
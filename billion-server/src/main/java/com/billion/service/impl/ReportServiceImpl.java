@@ -1,14 +1,20 @@
 package com.billion.service.impl;
 
+import com.billion.service.BusinessStatService;
 import com.billion.service.ReportService;
 import com.billion.dto.GoodsSalesDTO;
-import com.billion.entity.Orders;
+import com.billion.entity.BusinessStat;
 import com.billion.mapper.OrderMapper;
 import com.billion.mapper.UserMapper;
-import com.billion.service.WorkspaceService;
 import com.billion.vo.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -17,8 +23,10 @@ import org.springframework.stereotype.Service;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -37,7 +45,17 @@ public class ReportServiceImpl implements ReportService {
     @Autowired
     private UserMapper userMapper;
     @Autowired
-    private WorkspaceService workspaceService;
+    private BusinessStatService businessStatService;
+
+    //模板中明细数据的起始行
+    private static final int DETAIL_ROW_START = 7;
+    //明细数据的列数，从第2列开始
+    private static final int DETAIL_COLUMN_COUNT = 6;
+    //导出时内存中保留的行数
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
+    //缓存的模板文件内容
+    private volatile byte[] template;
 
     /**
      * 统计指定时间区间内的营业额数据
@@ -47,33 +65,14 @@ public class ReportServiceImpl implements ReportService {
      * @return
      */
     public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end) {
-        //当前集合用于存放从begin到end范围内的每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
+        //一次查询出从begin到end范围内每天的汇总数据，没有数据的日期已补0
+        List<BusinessStat> statList = businessStatService.getDaily(begin, end);
 
-        dateList.add(begin);
-
-        while (!begin.equals(end)) {
-            //日期计算，计算指定日期的后一天对应的日期
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        //存放从begin到end范围内的每天的日期
+        List<LocalDate> dateList = getDateList(statList);
 
-        //存放每天的营业额
-        List<Double> turnoverList = new ArrayList<>();
-        for (LocalDate date : dateList) {
-            //查询date日期对应的营业额数据，营业额是指：状态为“已完成”的订单金额合计
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            // select sum(amount) from orders where order_time > beginTime and order_time < endTime and status = 5
-            Map map = new HashMap();
-            map.put("begin", beginTime);
-            map.put("end", endTime);
-            map.put("status", Orders.COMPLETED);
-            Double turnover = orderMapper.sumByMap(map);
-            turnover = turnover == null ? 0.0 : turnover;
-            turnoverList.add(turnover);
-        }
+        //存放每天的营业额，营业额是指：状态为“已完成”的订单金额合计
+        List<Double> turnoverList = statList.stream().map(stat -> stat.getTurnover().doubleValue()).collect(Collectors.toList());
 
         //封装返回结果
         return TurnoverReportVO
@@ -91,37 +90,25 @@ public class ReportServiceImpl implements ReportService {
      * @return
      */
     public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
+        //一次查询出从begin到end范围内每天的汇总数据，没有数据的日期已补0
+        List<BusinessStat> statList = businessStatService.getDaily(begin, end);
+
         //存放从begin到end之间的每天对应的日期
-        List<LocalDate> dateList = new ArrayList<>();
+        List<LocalDate> dateList = getDateList(statList);
 
-        dateList.add(begin);
+        //存放每天的新增用户数量
+        List<Integer> newUserList = statList.stream().map(BusinessStat::getNewUserCount).collect(Collectors.toList());
 
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        //起始日期之前的用户总数 select count(id) from user where create_time < ?
+        Map map = new HashMap();
+        map.put("end", LocalDateTime.of(begin, LocalTime.MIN));
+        Integer totalUser = userMapper.countByMap(map);
 
-        //存放每天的新增用户数量 select count(id) from user where create_time < ? and create_time > ?
-        List<Integer> newUserList = new ArrayList<>();
-        //存放每天的总用户数量 select count(id) from user where create_time < ?
+        //存放每天的总用户数量，在起始用户总数上逐日累加新增用户数
         List<Integer> totalUserList = new ArrayList<>();
-
-        for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            Map map = new HashMap();
-            map.put("end", endTime);
-
-            //总用户数量
-            Integer totalUser = userMapper.countByMap(map);
-
-            map.put("begin", beginTime);
-            //新增用户数量
-            Integer newUser = userMapper.countByMap(map);
-
+        for (Integer newUser : newUserList) {
+            totalUser += newUser;
             totalUserList.add(totalUser);
-            newUserList.add(newUser);
         }
 
         //封装结果数据
@@ -140,34 +127,16 @@ public class ReportServiceImpl implements ReportService {
      * @return
      */
     public OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end) {
-        //存放从begin到end之间的每天对应的日期
-        List<LocalDate> dateList = new ArrayList<>();
-
-        dateList.add(begin);
+        //一次查询出从begin到end范围内每天的汇总数据，没有数据的日期已补0
+        List<BusinessStat> statList = businessStatService.getDaily(begin, end);
 
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        //存放从begin到end之间的每天对应的日期
+        List<LocalDate> dateList = getDateList(statList);
 
         //存放每天的订单总数
-        List<Integer> orderCountList = new ArrayList<>();
+        List<Integer> orderCountList = statList.stream().map(BusinessStat::getTotalOrderCount).collect(Collectors.toList());
         //存放每天的有效订单数
-        List<Integer> validOrderCountList = new ArrayList<>();
-
-        //遍历dateList集合，查询每天的有效订单数和订单总数
-        for (LocalDate date : dateList) {
-            //查询每天的订单总数 select count(id) from orders where order_time > ? and order_time < ?
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-            Integer orderCount = getOrderCount(beginTime, endTime, null);
-
-            //查询每天的有效订单数 select count(id) from orders where order_time > ? and order_time < ? and status = 5
-            Integer validOrderCount = getOrderCount(beginTime, endTime, Orders.COMPLETED);
-
-            orderCountList.add(orderCount);
-            validOrderCountList.add(validOrderCount);
-        }
+        List<Integer> validOrderCountList = statList.stream().map(BusinessStat::getValidOrderCount).collect(Collectors.toList());
 
         //计算时间区间内的订单总数量
         Integer totalOrderCount = orderCountList.stream().reduce(Integer::sum).get();
@@ -192,19 +161,12 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * 根据条件统计订单数量
-     * @param begin
-     * @param end
-     * @param status
+     * 取出每天汇总数据对应的日期
+     * @param statList
      * @return
      */
-    private Integer getOrderCount(LocalDateTime begin, LocalDateTime end, Integer status){
-        Map map = new HashMap();
-        map.put("begin",begin);
-        map.put("end",end);
-        map.put("status",status);
-
-        return orderMapper.countByMap(map);
+    private List<LocalDate> getDateList(List<BusinessStat> statList) {
+        return statList.stream().map(stat -> stat.getStatTime().toLocalDate()).collect(Collectors.toList());
     }
 
     /**
@@ -233,56 +195,76 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * 导出运营数据报表
+     * 导出运营数据报表，默认为最近30天
      * @param response
      */
     public void exportBusinessData(HttpServletResponse response) {
-        //1. 查询数据库，获取营业数据---查询最近30天的运营数据
-        LocalDate dateBegin = LocalDate.now().minusDays(30);
-        LocalDate dateEnd = LocalDate.now().minusDays(1);
-
-        //查询概览数据
-        BusinessDataVO businessDataVO = workspaceService.getBusinessData(LocalDateTime.of(dateBegin, LocalTime.MIN), LocalDateTime.of(dateEnd, LocalTime.MAX));
-
-        //2. 通过POI将数据写入到Excel文件中
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
+        exportBusinessData(LocalDate.now().minusDays(30), LocalDate.now().minusDays(1), response);
+    }
 
+    /**
+     * 导出指定日期区间的运营数据报表
+     * @param begin
+     * @param end
+     * @param response
+     */
+    public void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response) {
+        SXSSFWorkbook excel = null;
         try {
-            //基于模板文件创建一个新的Excel文件
-            XSSFWorkbook excel = new XSSFWorkbook(in);
-
-            //获取表格文件的Sheet页
-            XSSFSheet sheet = excel.getSheet("Sheet1");
+            //基于缓存的模板文件创建一个新的Excel文件
+            XSSFWorkbook templateExcel = new XSSFWorkbook(new ByteArrayInputStream(getTemplate()));
+            XSSFSheet sheet = templateExcel.getSheet("Sheet1");
+
+            //记录模板中明细行的单元格样式，删除模板中的明细行，明细数据改为逐行写入
+            XSSFRow detailRow = sheet.getRow(DETAIL_ROW_START);
+            CellStyle[] styles = new CellStyle[DETAIL_COLUMN_COUNT];
+            for (int i = 0; i < DETAIL_COLUMN_COUNT; i++) {
+                styles[i] = detailRow.getCell(i + 1).getCellStyle();
+            }
+            for (int i = sheet.getLastRowNum(); i >= DETAIL_ROW_START; i--) {
+                XSSFRow row = sheet.getRow(i);
+                if (row != null) {
+                    sheet.removeRow(row);
+                }
+            }
 
+            //内存中只保留最近写入的行，其余行写入临时文件
+            excel = new SXSSFWorkbook(templateExcel, ROW_ACCESS_WINDOW_SIZE);
+            Sheet detailSheet = excel.getSheet("Sheet1");
+
+            //1. 查询汇总表，逐天填充明细数据，同时累加概览数据
+            BigDecimal[] turnover = {BigDecimal.ZERO};
+            int[] counts = new int[3];
+            int[] rowIndex = {DETAIL_ROW_START};
+            businessStatService.streamDaily(begin, end, stat -> {
+                Row row = detailSheet.createRow(rowIndex[0]++);
+                setCell(row, 1, styles).setCellValue(stat.getStatTime().toLocalDate().toString());
+                setCell(row, 2, styles).setCellValue(stat.getTurnover().doubleValue());
+                setCell(row, 3, styles).setCellValue(stat.getValidOrderCount());
+                setCell(row, 4, styles).setCellValue(getOrderCompletionRate(stat.getValidOrderCount(), stat.getTotalOrderCount()));
+                setCell(row, 5, styles).setCellValue(getUnitPrice(stat.getTurnover(), stat.getValidOrderCount()));
+                setCell(row, 6, styles).setCellValue(stat.getNewUserCount());
+
+                turnover[0] = turnover[0].add(stat.getTurnover());
+                counts[0] += stat.getValidOrderCount();
+                counts[1] += stat.getTotalOrderCount();
+                counts[2] += stat.getNewUserCount();
+            });
+
+            //2. 填充概览数据，模板中的行在写出时才序列化，可以在明细之后填充
             //填充数据--时间
-            sheet.getRow(1).getCell(1).setCellValue("时间：" + dateBegin + "至" + dateEnd);
+            sheet.getRow(1).getCell(1).setCellValue("时间：" + begin + "至" + end);
 
             //获得第4行
             XSSFRow row = sheet.getRow(3);
-            row.getCell(2).setCellValue(businessDataVO.getTurnover());
-            row.getCell(4).setCellValue(businessDataVO.getOrderCompletionRate());
-            row.getCell(6).setCellValue(businessDataVO.getNewUsers());
+            row.getCell(2).setCellValue(turnover[0].doubleValue());
+            row.getCell(4).setCellValue(getOrderCompletionRate(counts[0], counts[1]));
+            row.getCell(6).setCellValue(counts[2]);
 
             //获得第5行
             row = sheet.getRow(4);
-            row.getCell(2).setCellValue(businessDataVO.getValidOrderCount());
-            row.getCell(4).setCellValue(businessDataVO.getUnitPrice());
-
-            //填充明细数据
-            for (int i = 0; i < 30; i++) {
-                LocalDate date = dateBegin.plusDays(i);
-                //查询某一天的营业数据
-                BusinessDataVO businessData = workspaceService.getBusinessData(LocalDateTime.of(date, LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
-
-                //获得某一行
-                row = sheet.getRow(7 + i);
-                row.getCell(1).setCellValue(date.toString());
-                row.getCell(2).setCellValue(businessData.getTurnover());
-                row.getCell(3).setCellValue(businessData.getValidOrderCount());
-                row.getCell(4).setCellValue(businessData.getOrderCompletionRate());
-                row.getCell(5).setCellValue(businessData.getUnitPrice());
-                row.getCell(6).setCellValue(businessData.getNewUsers());
-            }
+            row.getCell(2).setCellValue(counts[0]);
+            row.getCell(4).setCellValue(getUnitPrice(turnover[0], counts[0]));
 
             //3. 通过输出流将Excel文件下载到客户端浏览器
             ServletOutputStream out = response.getOutputStream();
@@ -293,7 +275,58 @@ public class ReportServiceImpl implements ReportService {
             excel.close();
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            if (excel != null) {
+                //删除临时文件
+                excel.dispose();
+            }
         }
+    }
 
+    /**
+     * 获取模板文件内容，首次使用时从classpath加载后缓存
+     * @return
+     * @throws IOException
+     */
+    private byte[] getTemplate() throws IOException {
+        if (template == null) {
+            try (InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx")) {
+                template = IOUtils.toByteArray(in);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * 创建明细单元格并使用模板中的样式
+     * @param row
+     * @param column
+     * @param styles
+     * @return
+     */
+    private Cell setCell(Row row, int column, CellStyle[] styles) {
+        Cell cell = row.createCell(column);
+        cell.setCellStyle(styles[column - 1]);
+        return cell;
+    }
+
+    /**
+     * 订单完成率：有效订单数 / 总订单数
+     * @param validOrderCount
+     * @param totalOrderCount
+     * @return
+     */
+    private double getOrderCompletionRate(int validOrderCount, int totalOrderCount) {
+        return totalOrderCount == 0 ? 0.0 : (double) validOrderCount / totalOrderCount;
+    }
+
+    /**
+     * 平均客单价：营业额 / 有效订单数
+     * @param turnover
+     * @param validOrderCount
+     * @return
+     */
+    private double getUnitPrice(BigDecimal turnover, int validOrderCount) {
+        return validOrderCount == 0 ? 0.0 : turnover.doubleValue() / validOrderCount;
     }
 }
@@ -2,6 +2,7 @@ package com.billion.service.impl;
 
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.billion.catalog.DishCatalog;
 import com.billion.constant.MessageConstant;
 import com.billion.constant.StatusConstant;
 import com.billion.dto.SetmealDTO;
@@ -15,6 +16,7 @@ import com.billion.mapper.DishMapper;
 import com.billion.mapper.SetmealDishMapper;
 import com.billion.mapper.SetmealMapper;
 import com.billion.result.PageResult;
+import com.billion.search.DishSearchIndex;
 import com.billion.service.SetmealService;
 import com.billion.vo.DishItemVO;
 import com.billion.vo.SetmealVO;
@@ -24,6 +26,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -39,6 +42,13 @@ public class SetmealServiceImpl implements SetmealService {
     private SetmealDishMapper setmealDishMapper;
     @Autowired
     private DishMapper dishMapper;
+    @Autowired
+    private DishCatalog dishCatalog;
+    @Autowired
+    private DishSearchIndex dishSearchIndex;
+
+    //搜索返回的最大套餐数
+    private static final int SEARCH_LIMIT = 50;
 
     /**
      * 新增套餐，同时需要保存套餐和菜品的关联关系
@@ -63,6 +73,8 @@ public class SetmealServiceImpl implements SetmealService {
 
         //保存套餐和菜品的关联关系
         setmealDishMapper.insertBatch(setmealDishes);
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -101,6 +113,8 @@ public class SetmealServiceImpl implements SetmealService {
             //删除套餐菜品关系表中的数据
             setmealDishMapper.deleteBySetmealId(setmealId);
         });
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -139,6 +153,8 @@ public class SetmealServiceImpl implements SetmealService {
         });
         //3、重新插入套餐和菜品的关联关系，操作setmeal_dish表，执行insert
         setmealDishMapper.insertBatch(setmealDishes);
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -166,6 +182,8 @@ public class SetmealServiceImpl implements SetmealService {
                 .status(status)
                 .build();
         setmealMapper.update(setmeal);
+
+        dishCatalog.refreshAfterCommit();
     }
 
     /**
@@ -186,4 +204,20 @@ public class SetmealServiceImpl implements SetmealService {
     public List<DishItemVO> getDishItemById(Long id) {
         return setmealMapper.getDishItemBySetmealId(id);
     }
+
+    /**
+     * 根据用户query搜索套餐，使用内存中的倒排索引和菜品目录，不访问数据库
+     * @param query 搜索关键词
+     * @return
+     */
+    public List<Setmeal> listWithSearch(String query) {
+        List<Setmeal> list = new ArrayList<>();
+        for (Long id : dishSearchIndex.searchSetmeals(query, SEARCH_LIMIT)) {
+            Setmeal setmeal = dishCatalog.getSetmeal(id);
+            if (setmeal != null) {
+                list.add(setmeal);
+            }
+        }
+        return list;
+    }
 }
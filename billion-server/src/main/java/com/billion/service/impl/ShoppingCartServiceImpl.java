@@ -1,5 +1,6 @@
 package com.billion.service.impl;
 
+import com.billion.catalog.DishCatalog;
 import com.billion.context.BaseContext;
 import com.billion.dto.ShoppingCartDTO;
 import com.billion.entity.Dish;
@@ -27,6 +28,8 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private DishCatalog dishCatalog;
 
     /**
      * 添加购物车
@@ -51,15 +54,21 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
             //判断本次添加到购物车的是菜品还是套餐
             Long dishId = shoppingCartDTO.getDishId();
             if(dishId != null){
-                //本次添加到购物车的是菜品
-                Dish dish = dishMapper.getById(dishId);
+                //本次添加到购物车的是菜品，优先从内存中的菜品目录查询，刚新增的菜品可能尚未进入目录
+                Dish dish = dishCatalog.getDish(dishId);
+                if (dish == null) {
+                    dish = dishMapper.getById(dishId);
+                }
                 shoppingCart.setName(dish.getName());
                 shoppingCart.setImage(dish.getImage());
                 shoppingCart.setAmount(dish.getPrice());
             }else{
                 //本次添加到购物车的是套餐
                 Long setmealId = shoppingCartDTO.getSetmealId();
-                Setmeal setmeal = setmealMapper.getById(setmealId);
+                Setmeal setmeal = dishCatalog.getSetmeal(setmealId);
+                if (setmeal == null) {
+                    setmeal = setmealMapper.getById(setmealId);
+                }
                 shoppingCart.setName(setmeal.getName());
                 shoppingCart.setImage(setmeal.getImage());
                 shoppingCart.setAmount(setmeal.getPrice());
@@ -8,6 +8,7 @@ import com.billion.entity.User;
 import com.billion.exception.LoginFailedException;
 import com.billion.mapper.UserMapper;
 import com.billion.properties.WeChatProperties;
+import com.billion.service.BusinessStatService;
 import com.billion.service.UserService;
 import com.billion.utils.HttpClientUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -29,6 +30,8 @@ public class UserServiceImpl implements UserService {
     private WeChatProperties weChatProperties;
     @Autowired
     private UserMapper userMapper;
+    @Autowired
+    private BusinessStatService businessStatService;
 
     /**
      * 微信登录
@@ -53,6 +56,7 @@ public class UserServiceImpl implements UserService {
                     .createTime(LocalDateTime.now())
                     .build();
             userMapper.insert(user);
+            businessStatService.recordUserRegister(user);
         }
 
         //返回这个用户对象
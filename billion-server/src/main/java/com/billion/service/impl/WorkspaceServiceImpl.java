@@ -1,11 +1,12 @@
 package com.billion.service.impl;
 
 import com.billion.constant.StatusConstant;
+import com.billion.entity.BusinessStat;
 import com.billion.entity.Orders;
 import com.billion.mapper.DishMapper;
-import com.billion.mapper.OrderMapper;
 import com.billion.mapper.SetmealMapper;
-import com.billion.mapper.UserMapper;
+import com.billion.service.BusinessStatService;
+import com.billion.service.OrderCountService;
 import com.billion.service.WorkspaceService;
 import com.billion.vo.BusinessDataVO;
 import com.billion.vo.DishOverViewVO;
@@ -15,7 +16,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,14 +23,14 @@ import java.util.Map;
 @Slf4j
 public class WorkspaceServiceImpl implements WorkspaceService {
 
-    @Autowired
-    private OrderMapper orderMapper;
-    @Autowired
-    private UserMapper userMapper;
     @Autowired
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private BusinessStatService businessStatService;
+    @Autowired
+    private OrderCountService orderCountService;
 
     /**
      * 根据时间段统计营业数据
@@ -47,20 +47,17 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 新增用户：当日新增用户的数量
          */
 
-        Map map = new HashMap();
-        map.put("begin",begin);
-        map.put("end",end);
+        //从营业数据汇总表中查询
+        BusinessStat businessStat = businessStatService.getSum(begin, end);
 
         //查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
+        Integer totalOrderCount = businessStat.getTotalOrderCount();
 
-        map.put("status", Orders.COMPLETED);
         //营业额
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null? 0.0 : turnover;
+        Double turnover = businessStat.getTurnover().doubleValue();
 
         //有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
+        Integer validOrderCount = businessStat.getValidOrderCount();
 
         Double unitPrice = 0.0;
 
@@ -73,7 +70,7 @@ public class WorkspaceServiceImpl implements WorkspaceService {
         }
 
         //新增用户数
-        Integer newUsers = userMapper.countByMap(map);
+        Integer newUsers = businessStat.getNewUserCount();
 
         return BusinessDataVO.builder()
                 .turnover(turnover)
@@ -91,28 +88,21 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public OrderOverViewVO getOrderOverView() {
-        Map map = new HashMap();
-        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("status", Orders.TO_BE_CONFIRMED);
-
+        //今天下单的订单数量，由内存计数得到，不查询数据库
         //待接单
-        Integer waitingOrders = orderMapper.countByMap(map);
+        Integer waitingOrders = orderCountService.getTodayCount(Orders.TO_BE_CONFIRMED);
 
         //待派送
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
+        Integer deliveredOrders = orderCountService.getTodayCount(Orders.CONFIRMED);
 
         //已完成
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
+        Integer completedOrders = orderCountService.getTodayCount(Orders.COMPLETED);
 
         //已取消
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
+        Integer cancelledOrders = orderCountService.getTodayCount(Orders.CANCELLED);
 
         //全部订单
-        map.put("status", null);
-        Integer allOrders = orderMapper.countByMap(map);
+        Integer allOrders = orderCountService.getTodayCount(null);
 
         return OrderOverViewVO.builder()
                 .waitingOrders(waitingOrders)
@@ -0,0 +1,76 @@
+package com.billion.statemachine;
+
+import com.billion.entity.Orders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单事件，定义每种事件允许的原状态和变化后的状态
+ * 订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+ */
+public enum OrderEvent {
+
+    /**
+     * 支付成功
+     */
+    PAY(Orders.TO_BE_CONFIRMED, Orders.PENDING_PAYMENT),
+
+    /**
+     * 商家接单
+     */
+    CONFIRM(Orders.CONFIRMED, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 商家拒单
+     */
+    REJECT(Orders.CANCELLED, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 派送订单
+     */
+    DELIVER(Orders.DELIVERY_IN_PROGRESS, Orders.CONFIRMED),
+
+    /**
+     * 完成订单
+     */
+    COMPLETE(Orders.COMPLETED, Orders.DELIVERY_IN_PROGRESS),
+
+    /**
+     * 用户取消，商家接单后用户不能取消
+     */
+    USER_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 商家取消
+     */
+    ADMIN_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED,
+            Orders.DELIVERY_IN_PROGRESS, Orders.COMPLETED);
+
+    private final Integer toStatus;
+
+    private final List<Integer> fromStatuses;
+
+    OrderEvent(Integer toStatus, Integer... fromStatuses) {
+        this.toStatus = toStatus;
+        this.fromStatuses = Collections.unmodifiableList(Arrays.asList(fromStatuses));
+    }
+
+    public Integer getToStatus() {
+        return toStatus;
+    }
+
+    public List<Integer> getFromStatuses() {
+        return fromStatuses;
+    }
+
+    /**
+     * 指定状态的订单是否允许发生该事件
+     * @param status
+     * @return
+     */
+    public boolean canFire(Integer status) {
+        return fromStatuses.contains(status);
+    }
+}
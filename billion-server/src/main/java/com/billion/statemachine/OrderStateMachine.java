@@ -0,0 +1,61 @@
+package com.billion.statemachine;
+
+import com.billion.entity.Orders;
+import com.billion.mapper.OrderMapper;
+import com.billion.service.OrderCountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+
+/**
+ * 订单状态机
+ * 每次状态变化只执行一条带原状态条件的update语句，根据影响行数判断是否成功，
+ * 并发操作同一订单时只有一个能成功，不需要先查询订单
+ */
+@Component
+@Slf4j
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderCountService orderCountService;
+
+    /**
+     * 触发只有一个原状态的事件
+     * @param orders 订单id及需要同时修改的其他字段，状态由事件决定
+     * @param event
+     * @return 订单不存在或不处于事件允许的状态时返回false
+     */
+    public boolean fire(Orders orders, OrderEvent event) {
+        if (event.getFromStatuses().size() != 1) {
+            throw new IllegalArgumentException("事件有多个原状态，需要指定订单的当前状态：" + event);
+        }
+        return fire(orders, event, event.getFromStatuses().get(0));
+    }
+
+    /**
+     * 触发事件，要求订单仍处于之前查询到的状态（乐观锁），适用于有多个原状态的事件
+     * @param orders 订单id及需要同时修改的其他字段，状态由事件决定
+     * @param event
+     * @param fromStatus 之前查询到的订单状态
+     * @return 订单不存在、状态已变化或不允许该事件时返回false
+     */
+    public boolean fire(Orders orders, OrderEvent event, Integer fromStatus) {
+        if (!event.canFire(fromStatus)) {
+            return false;
+        }
+
+        orders.setStatus(event.getToStatus());
+        Integer count = orderMapper.updateByIdAndStatus(orders, Collections.singletonList(fromStatus));
+        if (count == 0) {
+            log.info("订单状态变化失败，订单id：{}，事件：{}，原状态：{}", orders.getId(), event, fromStatus);
+            return false;
+        }
+
+        orderCountService.recordTransit(Collections.singletonList(orders.getId()), fromStatus, event.getToStatus());
+        return true;
+    }
+}
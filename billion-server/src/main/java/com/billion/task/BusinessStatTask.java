@@ -0,0 +1,67 @@
+package com.billion.task;
+
+import com.billion.mapper.BusinessStatMapper;
+import com.billion.mapper.OrderMapper;
+import com.billion.mapper.UserMapper;
+import com.billion.service.BusinessStatService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 定时任务类，维护营业数据汇总表
+ */
+@Component
+@Slf4j
+public class BusinessStatTask {
+
+    @Autowired
+    private BusinessStatService businessStatService;
+    @Autowired
+    private BusinessStatMapper businessStatMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 汇总表为空时（首次部署），根据历史数据回填
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (businessStatMapper.count() > 0) {
+            return;
+        }
+
+        LocalDateTime minOrderTime = orderMapper.getMinOrderTime();
+        LocalDateTime minCreateTime = userMapper.getMinCreateTime();
+        LocalDate begin = LocalDate.now();
+        if (minOrderTime != null && minOrderTime.toLocalDate().isBefore(begin)) {
+            begin = minOrderTime.toLocalDate();
+        }
+        if (minCreateTime != null && minCreateTime.toLocalDate().isBefore(begin)) {
+            begin = minCreateTime.toLocalDate();
+        }
+
+        log.info("回填营业数据汇总表：{}", begin);
+        businessStatService.rebuild(begin, LocalDate.now());
+    }
+
+    /**
+     * 核对最近7天的汇总数据，重算与orders表和user表不一致的日期，修正增量维护可能产生的误差
+     */
+    @Scheduled(cron = "0 30 1 * * ?") //每天凌晨1点30分触发一次，在派送中订单自动完成之后
+    public void reconcileRecentDays() {
+        log.info("定时核对最近7天的营业数据：{}", LocalDateTime.now());
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        List<LocalDate> driftDates = businessStatService.reconcile(yesterday.minusDays(6), yesterday);
+        log.info("营业数据核对完成，重算日期：{}", driftDates);
+    }
+}
@@ -1,7 +1,11 @@
 package com.billion.task;
 
+import com.billion.algrithm.InteractionHistory;
 import com.billion.entity.Orders;
 import com.billion.mapper.OrderMapper;
+import com.billion.service.BusinessStatService;
+import com.billion.service.OrderCountService;
+import com.billion.service.OrderStatusService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -11,6 +15,7 @@ import java.util.List;
 
 /**
  * 定时任务类，定时处理订单状态
+ * 支付超时的订单由OrderTimeoutScheduler按截止时间取消
  */
 @Component
 @Slf4j
@@ -18,28 +23,14 @@ public class OrderTask {
 
     @Autowired
     private OrderMapper orderMapper;
-
-    /**
-     * 处理超时订单的方法
-     */
-    @Scheduled(cron = "0 * * * * ? ") //每分钟触发一次
-    public void processTimeoutOrder(){
-        log.info("定时处理超时订单：{}", LocalDateTime.now());
-
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-15);
-
-        // select * from orders where status = ? and order_time < (当前时间 - 15分钟)
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, time);
-
-        if(ordersList != null && ordersList.size() > 0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("订单超时，自动取消");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
-            }
-        }
-    }
+    @Autowired
+    private BusinessStatService businessStatService;
+    @Autowired
+    private OrderStatusService orderStatusService;
+    @Autowired
+    private OrderCountService orderCountService;
+    @Autowired
+    private InteractionHistory interactionHistory;
 
     /**
      * 处理一直处于派送中状态的订单
@@ -50,13 +41,22 @@ public class OrderTask {
 
         LocalDateTime time = LocalDateTime.now().plusMinutes(-60);
 
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time);
+        List<Long> ids = orderMapper.getIdsByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time);
+
+        //分批修改，只有仍处于派送中的订单会被修改
+        Orders orders = Orders.builder().status(Orders.COMPLETED).build();
+        List<Long> completedIds = orderStatusService.batchTransit(ids, Orders.DELIVERY_IN_PROGRESS, orders);
+
+        businessStatService.recordOrderComplete(completedIds);
+        interactionHistory.append(completedIds);
+    }
 
-        if(ordersList != null && ordersList.size() > 0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
-            }
-        }
+    /**
+     * 根据订单表校正Redis中的订单计数
+     */
+    @Scheduled(cron = "0 0/5 * * * ?") //每5分钟触发一次
+    public void reconcileOrderCount(){
+        log.debug("定时校正订单计数：{}", LocalDateTime.now());
+        orderCountService.reconcile();
     }
 }
@@ -0,0 +1,169 @@
+package com.billion.task;
+
+import com.billion.entity.Orders;
+import com.billion.mapper.OrderMapper;
+import com.billion.properties.OrderProperties;
+import com.billion.service.OrderStatusService;
+import com.billion.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 订单支付超时调度
+ * 下单事务提交后把支付截止时间写入Redis有序集合，所有实例共用这一个队列：
+ * 每秒取出已到期的订单，逐个ZREM认领，删除成功的实例才负责取消，每个订单只会被一个实例取消；
+ * 支付或取消后从有序集合中删除，任何实例都不会再处理；实例宕机后它登记的订单由其他实例按时处理。
+ * 取消时带上待付款状态条件，已支付的订单不会被误取消
+ */
+@Component
+@Slf4j
+public class OrderTimeoutScheduler {
+
+    //Redis中保存订单支付截止时间的有序集合，member为订单id，score为截止时间的毫秒时间戳
+    public static final String TIMEOUT_KEY = "order:timeout";
+
+    //上线前已存在的待付款订单已登记的标记，只登记一次
+    private static final String BACKFILL_KEY = "order:timeout:backfilled";
+
+    //每批认领、取消的订单数
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderProperties orderProperties;
+    @Autowired
+    private OrderStatusService orderStatusService;
+
+    /**
+     * 登记新订单的支付截止时间；在事务中调用时，事务提交后再登记
+     * @param orders
+     */
+    public void register(Orders orders) {
+        TransactionUtils.afterCommit(() -> stringRedisTemplate.opsForZSet().add(TIMEOUT_KEY, orders.getId().toString(), deadline(orders)));
+    }
+
+    /**
+     * 订单已支付或已取消，撤销支付超时；在事务中调用时，事务提交后再撤销，事务回滚时保留
+     * @param orderId
+     */
+    public void unregister(Long orderId) {
+        TransactionUtils.afterCommit(() -> stringRedisTemplate.opsForZSet().remove(TIMEOUT_KEY, orderId.toString()));
+    }
+
+    /**
+     * 支付截止时间的毫秒时间戳
+     * @param orders
+     * @return
+     */
+    private long deadline(Orders orders) {
+        return orders.getOrderTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + orderProperties.getPayTimeout().toMillis();
+    }
+
+    /**
+     * 首次启动时登记上线前已存在的待付款订单，多个实例只有一个会执行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Boolean absent = stringRedisTemplate.opsForValue().setIfAbsent(BACKFILL_KEY, "1");
+        if (!Boolean.TRUE.equals(absent)) {
+            return;
+        }
+        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, LocalDateTime.now());
+        for (Orders orders : ordersList) {
+            //已登记的订单不覆盖截止时间
+            stringRedisTemplate.opsForZSet().addIfAbsent(TIMEOUT_KEY, orders.getId().toString(), deadline(orders));
+        }
+        log.info("登记已存在的待付款订单的支付超时：{}", ordersList.size());
+    }
+
+    /**
+     * 每秒认领并批量取消已到期的订单
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void cancelExpiredOrders() {
+        while (true) {
+            Set<String> members = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(TIMEOUT_KEY, 0, System.currentTimeMillis(), 0, BATCH_SIZE);
+            if (members == null || members.isEmpty()) {
+                return;
+            }
+            List<Long> ids = claim(new ArrayList<>(members));
+            if (!ids.isEmpty() && !cancel(ids)) {
+                return;
+            }
+            if (members.size() < BATCH_SIZE) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 用一次管道逐个ZREM到期的订单，只返回本实例删除成功的，其余已被其他实例认领或已支付
+     * @param members
+     * @return
+     */
+    private List<Long> claim(List<String> members) {
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (String member : members) {
+                    operations.opsForZSet().remove(TIMEOUT_KEY, member);
+                }
+                return null;
+            }
+        });
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < members.size(); i++) {
+            Object removed = results.get(i);
+            if (removed instanceof Number && ((Number) removed).longValue() > 0) {
+                ids.add(Long.valueOf(members.get(i)));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 取消一批已认领的到期订单；失败时放回有序集合，下一秒重试
+     * @param ids
+     * @return 是否成功
+     */
+    private boolean cancel(List<Long> ids) {
+        Orders orders = Orders.builder()
+                .status(Orders.CANCELLED)
+                .cancelReason("订单超时，自动取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+        List<Long> cancelledIds;
+        try {
+            cancelledIds = orderStatusService.batchTransit(ids, Orders.PENDING_PAYMENT, orders);
+        } catch (RuntimeException e) {
+            log.error("取消超时订单失败，订单数：{}", ids.size(), e);
+            long now = System.currentTimeMillis();
+            for (Long id : ids) {
+                stringRedisTemplate.opsForZSet().addIfAbsent(TIMEOUT_KEY, id.toString(), now);
+            }
+            return false;
+        }
+        log.info("取消超时订单，到期：{}，取消：{}", ids.size(), cancelledIds.size());
+        return true;
+    }
+}
@@ -0,0 +1,153 @@
+package com.billion.task;
+
+import com.billion.algrithm.InteractionHistory;
+import com.billion.algrithm.Recommendation;
+import com.billion.algrithm.RecommendationCache;
+import com.billion.mapper.OrderMapper;
+import com.billion.properties.RecommendProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.FloatBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 离线批量推荐
+ * 每天凌晨为近期活跃的用户批量推理，结果写入推荐缓存，用餐高峰时在线接口直接使用，
+ * 只有没有预计算结果的用户才在线推理，避免高峰期推理与下单争抢CPU；多个实例每天只有一个执行
+ */
+@Component
+@Slf4j
+public class RecommendationTask {
+
+    //当天已有实例执行批量推荐的标记，有效期短于执行间隔，不主动删除，避免时钟稍慢的实例在执行完后再次执行
+    private static final String LOCK_KEY = "recommend:batch:lock";
+
+    private static final Duration LOCK_TTL = Duration.ofHours(12);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private Recommendation recommendation;
+    @Autowired
+    private InteractionHistory interactionHistory;
+    @Autowired
+    private RecommendationCache recommendationCache;
+    @Autowired
+    private RecommendProperties recommendProperties;
+
+    /**
+     * 为近期下过单的用户批量推理
+     */
+    @Scheduled(cron = "0 0 3 * * ?") //每天凌晨3点触发一次
+    public void scoreActiveUsers() {
+        Boolean absent = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, "1", LOCK_TTL);
+        if (!Boolean.TRUE.equals(absent)) {
+            log.info("其他实例已执行离线批量推荐，跳过");
+            return;
+        }
+
+        LocalDateTime begin = LocalDateTime.now().minusDays(recommendProperties.getBatchActiveDays());
+        List<Long> userIds = orderMapper.getUserIdsByOrderTimeGE(begin);
+        log.info("开始离线批量推荐，活跃用户数：{}", userIds.size());
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        LongAdder scored = new LongAdder();
+        //每个会话同时只能执行一次推理，并行度与会话数一致
+        ForkJoinPool pool = new ForkJoinPool(recommendation.getSessionPoolSize());
+        try {
+            pool.invoke(new ScoreAction(userIds, 0, userIds.size(), scored));
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long scoredCount = scored.sum();
+        log.info("离线批量推荐完成，活跃用户数：{}，推理用户数：{}，耗时：{}秒，吞吐：{}用户/秒",
+                userIds.size(), scoredCount, String.format("%.1f", seconds),
+                String.format("%.1f", scoredCount / Math.max(seconds, 1e-3)));
+    }
+
+    /**
+     * 一批用户的推理：超过批大小时二分，否则读取点单历史，按序列长度分组，每组一次推理
+     * 模型没有padding mask，长度不同的序列不能补齐后合批，与RecommendationBatcher相同
+     * @param userIds
+     * @param scored 推理用户数
+     */
+    private void score(List<Long> userIds, LongAdder scored) {
+        List<long[]> sequences = interactionHistory.get(userIds);
+        //序列长度 -> 用户在userIds中的下标；没有完成过订单的用户使用默认推荐，不需要预计算
+        Map<Integer, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < sequences.size(); i++) {
+            int length = sequences.get(i).length;
+            if (length > 0) {
+                groups.computeIfAbsent(length, l -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+            int length = group.getKey();
+            List<Integer> rows = group.getValue();
+            long[] inputs = new long[rows.size() * length];
+            for (int row = 0; row < rows.size(); row++) {
+                System.arraycopy(sequences.get(rows.get(row)), 0, inputs, row * length, length);
+            }
+
+            FloatBuffer outputs = recommendation.forward(inputs, rows.size(), length);
+            //模型可能已被替换，类别数以本次输出为准
+            int classNum = outputs.limit() / rows.size();
+            int k = Math.min(recommendProperties.getTopK(), classNum);
+            for (int row = 0; row < rows.size(); row++) {
+                int[] result = new int[k];
+                Recommendation.topK(outputs, row * classNum, classNum, k, result);
+                recommendationCache.put(userIds.get(rows.get(row)), result, recommendProperties.getBatchCacheTtl());
+            }
+            scored.add(rows.size());
+        }
+    }
+
+    private class ScoreAction extends RecursiveAction {
+        private final List<Long> userIds;
+        private final int from;
+        private final int to;
+        private final LongAdder scored;
+
+        private ScoreAction(List<Long> userIds, int from, int to, LongAdder scored) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+            this.scored = scored;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= recommendProperties.getBatchSize()) {
+                try {
+                    score(userIds.subList(from, to), scored);
+                } catch (RuntimeException e) {
+                    //一批失败不影响其他批次，这些用户在线推理
+                    log.error("离线批量推荐失败，用户数：{}", to - from, e);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreAction(userIds, from, mid, scored), new ScoreAction(userIds, mid, to, scored));
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.billion.test;
+
+import com.billion.cache.BinaryCodec;
+import com.billion.cache.BinaryRedisSerializer;
+import com.billion.entity.DishFlavor;
+import com.billion.result.Result;
+import com.billion.vo.DishVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryCodecTest {
+
+    private final ClassLoader classLoader = getClass().getClassLoader();
+
+    //不压缩
+    private final BinaryRedisSerializer serializer = new BinaryRedisSerializer(classLoader, true, Integer.MAX_VALUE);
+
+    private final BinaryCodec codec = new BinaryCodec(classLoader);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMenu() {
+        Result<List<DishVO>> menu = Result.success(menu(10));
+
+        Object decoded = serializer.deserialize(serializer.serialize(menu));
+
+        assertEquals(menu, decoded);
+        DishVO dishVO = ((Result<List<DishVO>>) decoded).getData().get(0);
+        assertEquals(2, dishVO.getFlavors().size());
+        //BigDecimal保留精度
+        assertEquals(new BigDecimal("38.00"), dishVO.getPrice());
+    }
+
+    @Test
+    public void testScalars() {
+        List<Object> values = Arrays.asList(new BigDecimal("-12345678901234567890.125"), BigDecimal.ZERO.setScale(2),
+                LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123456789), LocalDateTime.of(1969, 12, 31, 23, 59),
+                Long.MIN_VALUE, Integer.MAX_VALUE, -1.5, true, "中文字符串", new byte[0]);
+        for (Object value : values) {
+            Object decoded = codec.decode(codec.encode(value), 0);
+            if (value instanceof byte[]) {
+                assertEquals(0, ((byte[]) decoded).length);
+            } else {
+                assertEquals(value, decoded);
+            }
+        }
+    }
+
+    @Test
+    public void testNull() {
+        assertNull(codec.decode(codec.encode(null), 0));
+        //缓存的空值标记解码后仍是同一个实例
+        assertSame(NullValue.INSTANCE, serializer.deserialize(serializer.serialize(NullValue.INSTANCE)));
+
+        DishVO dishVO = DishVO.builder().id(1L).name("宫保鸡丁").build();
+        DishVO decoded = (DishVO) codec.decode(codec.encode(dishVO), 0);
+        assertEquals(dishVO, decoded);
+        assertNull(decoded.getDescription());
+        //编码端为null的字段不使用构造方法中的默认值
+        assertNull(decoded.getFlavors());
+    }
+
+    @Test
+    public void testFieldChange() {
+        ItemV1 item = new ItemV1();
+        item.id = 7L;
+        item.name = "红烧肉";
+        item.removed = "只在旧版本中存在";
+        item.count = 3;
+        byte[] bytes = codec.encode(item);
+
+        //把类名替换为长度相同、字段不同的类，模拟写入端和读取端的类定义不一致
+        byte[] from = ItemV1.class.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] to = ItemV2.class.getName().getBytes(StandardCharsets.UTF_8);
+        int index = indexOf(bytes, from);
+        assertTrue(index >= 0);
+        System.arraycopy(to, 0, bytes, index, to.length);
+
+        ItemV2 decoded = (ItemV2) new BinaryCodec(classLoader).decode(bytes, 0);
+        assertEquals(Long.valueOf(7), decoded.id);
+        assertEquals("红烧肉", decoded.name);
+        //读取端新增的字段保留默认值，Integer改为Long时转换
+        assertEquals("默认", decoded.added);
+        assertEquals(Long.valueOf(3), decoded.count);
+    }
+
+    @Test
+    public void testCollectionFields() {
+        Tags tags = new Tags();
+        tags.sorted = new TreeSet<>(Arrays.asList("b", "a", "c"));
+        tags.counts = new TreeMap<>();
+        tags.counts.put("z", 1);
+        tags.counts.put("a", 2);
+        tags.reversed = new TreeSet<>(Comparator.reverseOrder());
+        tags.reversed.addAll(Arrays.asList("a", "b"));
+
+        Tags decoded = (Tags) codec.decode(codec.encode(tags), 0);
+
+        assertEquals(tags.sorted, decoded.sorted);
+        assertEquals(tags.counts, decoded.counts);
+        //带比较器的有序集合使用JDK序列化，保留比较器
+        assertEquals(Arrays.asList("b", "a"), new ArrayList<>(decoded.reversed));
+    }
+
+    @Test
+    public void testJdkFallback() {
+        //没有无参构造方法的类嵌入JDK序列化的结果
+        Result<Money> result = Result.success(new Money(new BigDecimal("9.90"), "CNY"));
+        assertEquals(result, serializer.deserialize(serializer.serialize(result)));
+
+        //读取JDK序列化写入的旧数据
+        JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer(classLoader);
+        Result<List<DishVO>> menu = Result.success(menu(3));
+        assertEquals(menu, serializer.deserialize(jdkSerializer.serialize(menu)));
+    }
+
+    @Test
+    public void testLz4() {
+        BinaryRedisSerializer compressing = new BinaryRedisSerializer(classLoader, true, 1024);
+        Result<List<DishVO>> menu = Result.success(menu(50));
+
+        byte[] plain = serializer.serialize(menu);
+        byte[] compressed = compressing.serialize(menu);
+
+        //第3个字节为标志位，最低位表示LZ4压缩
+        assertEquals(0, plain[2] & 1);
+        assertEquals(1, compressed[2] & 1);
+        assertTrue(compressed.length < plain.length, plain.length + " -> " + compressed.length);
+        assertEquals(menu, compressing.deserialize(compressed));
+        //不压缩的实例也能读取压缩的数据
+        assertEquals(menu, serializer.deserialize(compressed));
+
+        //低于阈值不压缩
+        byte[] small = compressing.serialize(Result.success(menu(1)));
+        assertEquals(0, small[2] & 1);
+    }
+
+    @Test
+    public void testNewerVersion() {
+        byte[] bytes = serializer.serialize(Result.success(menu(1)));
+        //第2个字节为格式版本，旧版本的实例读到新版本的数据时按未命中处理
+        bytes[1] = BinaryRedisSerializer.VERSION + 1;
+        assertNull(serializer.deserialize(bytes));
+
+        //数据损坏同样按未命中处理
+        byte[] truncated = Arrays.copyOf(serializer.serialize(Result.success(menu(1))), 20);
+        assertNull(serializer.deserialize(truncated));
+    }
+
+    private static List<DishVO> menu(int dishCount) {
+        List<DishVO> list = new ArrayList<>(dishCount);
+        LocalDateTime updateTime = LocalDateTime.of(2024, 5, 1, 10, 30);
+        for (int i = 0; i < dishCount; i++) {
+            long id = 46 + i;
+            List<DishFlavor> flavors = new ArrayList<>(Arrays.asList(
+                    new DishFlavor(id * 2, id, "辣度", "[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]"),
+                    new DishFlavor(id * 2 + 1, id, "忌口", "[\"不要葱\",\"不要蒜\",\"不要香菜\",\"不要辣\"]")));
+            list.add(DishVO.builder()
+                    .id(id)
+                    .name("招牌菜品" + i)
+                    .categoryId(16L)
+                    .price(new BigDecimal("38.00").add(BigDecimal.valueOf(i)))
+                    .image("https://billion-supermarket.oss-cn-beijing.aliyuncs.com/" + (100000 + i) + "-dish.png")
+                    .description(i % 3 == 0 ? null : "精选食材，现点现做")
+                    .status(1)
+                    .updateTime(updateTime.plusMinutes(i))
+                    .categoryName("热菜")
+                    .flavors(flavors)
+                    .build());
+        }
+        return list;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        for (int i = 0; i + target.length <= bytes.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + target.length), target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static class ItemV1 implements Serializable {
+        private Long id;
+        private String name;
+        private String removed;
+        private Integer count;
+    }
+
+    public static class ItemV2 implements Serializable {
+        private Long id;
+        private String name;
+        private String added = "默认";
+        private Long count;
+    }
+
+    public static class Tags implements Serializable {
+        private TreeSet<String> sorted;
+        private TreeMap<String, Integer> counts;
+        private TreeSet<String> reversed;
+    }
+
+    public static class Money implements Serializable {
+        private final BigDecimal amount;
+        private final String currency;
+
+        public Money(BigDecimal amount, String currency) {
+            this.amount = amount;
+            this.currency = currency;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Money)) {
+                return false;
+            }
+            Money money = (Money) o;
+            return amount.equals(money.amount) && currency.equals(money.currency);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(amount, currency);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.billion.test;
+
+import com.billion.catalog.DishCatalog;
+import com.billion.constant.StatusConstant;
+import com.billion.entity.Dish;
+import com.billion.entity.Setmeal;
+import com.billion.search.DishSearchIndex;
+import com.billion.search.RecentSales;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DishSearchIndexTest {
+
+    private DishCatalog dishCatalog;
+
+    private RecentSales recentSales;
+
+    private DishSearchIndex index;
+
+    private List<Dish> dishes;
+
+    @BeforeEach
+    public void setUp() {
+        dishCatalog = mock(DishCatalog.class);
+        recentSales = mock(RecentSales.class);
+        when(dishCatalog.getCategoryName(16L)).thenReturn("川菜");
+        when(dishCatalog.getCategoryName(17L)).thenReturn("汤类");
+        when(dishCatalog.getCategoryName(18L)).thenReturn("套餐");
+
+        dishes = new ArrayList<>(Arrays.asList(
+                dish(1L, "宫保鸡丁", 16L, "花生米", StatusConstant.ENABLE),
+                dish(2L, "鸡蛋汤", 17L, "清淡", StatusConstant.ENABLE),
+                dish(3L, "红烧肉", 16L, "肥而不腻", StatusConstant.ENABLE),
+                dish(4L, "辣子鸡丁", 16L, "香辣", StatusConstant.DISABLE)));
+        when(dishCatalog.getDishes()).thenAnswer(invocation -> dishes);
+        when(dishCatalog.getSetmeals()).thenReturn(Collections.singletonList(
+                Setmeal.builder().id(1L).name("鸡丁套餐").categoryId(18L).description("鸡丁加米饭").status(StatusConstant.ENABLE).build()));
+
+        index = new DishSearchIndex();
+        ReflectionTestUtils.setField(index, "dishCatalog", dishCatalog);
+        ReflectionTestUtils.setField(index, "recentSales", recentSales);
+        index.sync();
+    }
+
+    @Test
+    public void testBigramMatch() {
+        //只有名称中相邻的“鸡丁”才匹配，停售的菜品和套餐不出现在菜品结果中
+        assertEquals(Collections.singletonList(1L), index.searchDishes("鸡丁", 10));
+        assertEquals(Collections.singletonList(1L), index.searchSetmeals("鸡丁", 10));
+        //标点不影响匹配
+        assertEquals(Collections.singletonList(1L), index.searchDishes("宫保，鸡丁", 10));
+        assertTrue(index.searchDishes("丁鸡", 10).isEmpty());
+        assertTrue(index.searchDishes("", 10).isEmpty());
+    }
+
+    @Test
+    public void testRanking() {
+        when(recentSales.getDishSales(1L)).thenReturn(5L);
+        when(recentSales.getDishSales(2L)).thenReturn(20L);
+
+        //匹配程度相同时按近期销量排序
+        assertEquals(Arrays.asList(2L, 1L), index.searchDishes("鸡", 10));
+        assertEquals(Collections.singletonList(2L), index.searchDishes("鸡", 1));
+        //只有分类名称匹配的菜品也作为结果
+        assertEquals(Arrays.asList(1L, 3L), index.searchDishes("川菜", 10));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSyncDiff() {
+        Map<Long, ?> docs = (Map<Long, ?>) ReflectionTestUtils.getField(index, "docs");
+        //菜品1的文档key
+        Object unchanged = docs.get(2L);
+
+        dishes.set(2, dish(3L, "回锅肉", 16L, "肥而不腻", StatusConstant.ENABLE));
+        dishes.remove(1);
+        dishes.add(dish(5L, "鸡汤", 17L, "清淡", StatusConstant.ENABLE));
+        dishes.set(2, dish(4L, "辣子鸡丁", 16L, "香辣", StatusConstant.ENABLE));
+        index.sync();
+
+        assertTrue(index.searchDishes("红烧", 10).isEmpty());
+        assertEquals(Collections.singletonList(3L), index.searchDishes("回锅", 10));
+        assertTrue(index.searchDishes("鸡蛋", 10).isEmpty());
+        assertEquals(Collections.singletonList(5L), index.searchDishes("鸡汤", 10));
+        assertEquals(Arrays.asList(1L, 4L), index.searchDishes("鸡丁", 10));
+
+        //删除和改名的菜品不再留下倒排项
+        Map<String, Map<Long, Integer>> postings = (Map<String, Map<Long, Integer>>) ReflectionTestUtils.getField(index, "postings");
+        assertFalse(postings.containsKey("红烧"));
+        assertFalse(postings.containsKey("蛋汤"));
+        assertEquals(5, docs.size());
+        //内容没有变化的菜品不重新索引
+        assertSame(unchanged, docs.get(2L));
+    }
+
+    private static Dish dish(Long id, String name, Long categoryId, String description, Integer status) {
+        return Dish.builder().id(id).name(name).categoryId(categoryId).description(description).status(status).build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.billion.test;
+
+import com.billion.catalog.DishCatalog;
+import com.billion.constant.StatusConstant;
+import com.billion.entity.Dish;
+import com.billion.entity.Setmeal;
+import com.billion.search.DishSuggester;
+import com.billion.search.RecentSales;
+import com.billion.vo.SuggestionVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DishSuggesterTest {
+
+    private DishCatalog dishCatalog;
+
+    private RecentSales recentSales;
+
+    private DishSuggester suggester;
+
+    @BeforeEach
+    public void setUp() {
+        dishCatalog = mock(DishCatalog.class);
+        recentSales = mock(RecentSales.class);
+        suggester = new DishSuggester();
+        ReflectionTestUtils.setField(suggester, "dishCatalog", dishCatalog);
+        ReflectionTestUtils.setField(suggester, "recentSales", recentSales);
+    }
+
+    @Test
+    public void testTopSuggestions() {
+        //12个同一前缀的菜品，销量等于id
+        List<Dish> dishes = new ArrayList<>();
+        for (long id = 1; id <= 12; id++) {
+            dishes.add(dish(id, "鸡块" + id, StatusConstant.ENABLE));
+            when(recentSales.getDishSales(id)).thenReturn(id);
+        }
+        when(dishCatalog.getDishes()).thenReturn(dishes);
+        when(dishCatalog.getSetmeals()).thenReturn(Collections.emptyList());
+        suggester.rebuild();
+
+        //每个节点只保留销量最高的MAX_SUGGESTIONS个结果
+        assertEquals(Arrays.asList(12L, 11L, 10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L), ids(suggester.suggest("鸡", 20)));
+        assertEquals(DishSuggester.MAX_SUGGESTIONS, suggester.suggest("鸡块", DishSuggester.MAX_SUGGESTIONS).size());
+        assertEquals(Arrays.asList(12L, 11L, 10L), ids(suggester.suggest("鸡块", 3)));
+        //更深的节点只包含经过它的名称
+        assertEquals(Arrays.asList(12L, 11L, 10L, 1L), ids(suggester.suggest("鸡块1", 10)));
+        assertTrue(suggester.suggest("鸭", 10).isEmpty());
+        assertTrue(suggester.suggest("", 10).isEmpty());
+    }
+
+    @Test
+    public void testPinyin() {
+        when(dishCatalog.getDishes()).thenReturn(Arrays.asList(
+                dish(1L, "宫保鸡丁", StatusConstant.ENABLE),
+                dish(2L, "鸡蛋汤", StatusConstant.ENABLE),
+                dish(3L, "辣子鸡丁", StatusConstant.DISABLE)));
+        when(dishCatalog.getSetmeals()).thenReturn(Collections.singletonList(
+                Setmeal.builder().id(1L).name("鸡丁套餐").status(StatusConstant.ENABLE).build()));
+        when(recentSales.getDishSales(2L)).thenReturn(10L);
+        suggester.rebuild();
+
+        //名称、全拼、拼音首字母都能匹配，不区分大小写，停售的菜品不作为提示
+        assertEquals(Collections.singletonList(1L), ids(suggester.suggest("宫保", 10)));
+        assertEquals(Collections.singletonList(1L), ids(suggester.suggest("gongbao", 10)));
+        assertEquals(Collections.singletonList(1L), ids(suggester.suggest("GBJD", 10)));
+
+        //全拼前缀同时匹配菜品和套餐，按销量、名称排序
+        List<SuggestionVO> suggestions = suggester.suggest("ji", 10);
+        assertEquals(Arrays.asList("鸡蛋汤", "鸡丁套餐"), suggestions.stream().map(SuggestionVO::getName).collect(Collectors.toList()));
+        assertEquals(DishSuggester.DISH, suggestions.get(0).getType());
+        assertEquals(DishSuggester.SETMEAL, suggestions.get(1).getType());
+    }
+
+    private static Dish dish(Long id, String name, Integer status) {
+        return Dish.builder().id(id).name(name).status(status).build();
+    }
+
+    private static List<Long> ids(List<SuggestionVO> suggestions) {
+        return suggestions.stream().map(SuggestionVO::getId).collect(Collectors.toList());
+    }
+}
@@ -3,10 +3,17 @@ package com.billion.test;
 import ai.onnxruntime.OrtException;
 import com.billion.algrithm.Recommendation;
 import com.billion.properties.OnnxProperties;
+import com.sun.management.ThreadMXBean;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class RecommendationTest {
 
     @Test
@@ -21,4 +28,59 @@ public class RecommendationTest {
         System.out.println(Arrays.deepToString(rank));
         System.out.printf("(%d, %d)", result.length, result[0].length);
     }
+
+    @Test
+    public void testForwardAllocation() throws OrtException {
+        OnnxProperties onnxProperties = new OnnxProperties();
+        onnxProperties.setDevice("cpu");
+        Recommendation recommendation = new Recommendation(onnxProperties);
+
+        long small = allocatedBytesPerForward(recommendation, 1, 12);
+        long large = allocatedBytesPerForward(recommendation, 32, 20);
+        System.out.printf("每次推理分配字节数，批大小1：%d，批大小32：%d%n", small, large);
+
+        //只剩下张量、结果等少量包装对象，不随批大小和序列长度增长
+        assertTrue(large < 4096, "每次推理分配" + large + "字节");
+        assertTrue(large - small < 256, "分配随批大小增长：" + small + " -> " + large);
+        recommendation.destroy();
+    }
+
+    private long allocatedBytesPerForward(Recommendation recommendation, int batchSize, int length) {
+        long[] inputs = new long[batchSize * length];
+        int[] out = new int[20];
+
+        //预热，完成缓冲区分配和JIT编译
+        for (int i = 0; i < 200; i++) {
+            recommendation.forward(inputs, batchSize, length);
+        }
+
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int times = 1000;
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < times; i++) {
+            FloatBuffer outputs = recommendation.forward(inputs, batchSize, length);
+            for (int row = 0; row < batchSize; row++) {
+                Recommendation.topK(outputs, row * recommendation.getClassNum(), recommendation.getClassNum(), out.length, out);
+            }
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / times;
+    }
+
+    @Test
+    public void testTopK() {
+        float[] scores = {0.1f, 0.9f, 0.3f, 0.9f, -1f, 0.5f};
+        float[] copy = scores.clone();
+        int[] out = new int[3];
+
+        int count = Recommendation.topK(scores, 3, out);
+
+        assertEquals(3, count);
+        assertArrayEquals(new int[]{1, 3, 5}, out);
+        assertArrayEquals(copy, scores);
+
+        int[] all = new int[10];
+        assertEquals(6, Recommendation.topK(scores, 10, all));
+        assertArrayEquals(new int[]{1, 3, 5, 2, 0, 4}, Arrays.copyOf(all, 6));
+    }
 }
@@ -0,0 +1,65 @@
+package com.billion.test;
+
+import com.billion.utils.SnowflakeIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnowflakeIdGeneratorTest {
+
+    /**
+     * 单线程生成的id严格递增，并且可以解析出节点id和生成时间
+     */
+    @Test
+    public void testMonotonic() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5);
+        long before = System.currentTimeMillis();
+        long last = 0;
+        for (int i = 0; i < 100000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+        assertEquals(5, SnowflakeIdGenerator.nodeIdOf(last));
+        assertTrue(SnowflakeIdGenerator.timestampOf(last) >= before);
+    }
+
+    /**
+     * 多线程、多节点并发生成的id不重复
+     */
+    @Test
+    public void testUniqueAcrossThreadsAndNodes() throws InterruptedException {
+        SnowflakeIdGenerator node1 = new SnowflakeIdGenerator(1);
+        SnowflakeIdGenerator node2 = new SnowflakeIdGenerator(2);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        int threads = 8;
+        int perThread = 50000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            SnowflakeIdGenerator generator = t % 2 == 0 ? node1 : node2;
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(generator.nextId());
+                }
+                latch.countDown();
+            });
+        }
+        latch.await();
+        pool.shutdown();
+
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    public void testInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -20,6 +20,16 @@ CREATE TABLE `address_book` (
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB AUTO_INCREMENT=2 DEFAULT CHARSET=utf8mb3 COLLATE=utf8_bin COMMENT='地址簿';
 
+DROP TABLE IF EXISTS `business_stat`;
+CREATE TABLE `business_stat` (
+  `stat_time` datetime NOT NULL COMMENT '统计时段（整点）',
+  `turnover` decimal(12,2) NOT NULL DEFAULT '0.00' COMMENT '营业额',
+  `valid_order_count` int NOT NULL DEFAULT '0' COMMENT '有效订单数',
+  `total_order_count` int NOT NULL DEFAULT '0' COMMENT '订单总数',
+  `new_user_count` int NOT NULL DEFAULT '0' COMMENT '新增用户数',
+  PRIMARY KEY (`stat_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb3 COLLATE=utf8_bin COMMENT='营业数据小时汇总表';
+
 DROP TABLE IF EXISTS `category`;
 CREATE TABLE `category` (
   `id` bigint NOT NULL AUTO_INCREMENT COMMENT '主键',
@@ -170,6 +180,7 @@ CREATE TABLE `orders` (
   `amount` decimal(10,2) NOT NULL COMMENT '实收金额',
   `remark` varchar(100) COLLATE utf8_bin DEFAULT NULL COMMENT '备注',
   `phone` varchar(11) COLLATE utf8_bin DEFAULT NULL COMMENT '手机号',
+  `phone_reversed` varchar(11) COLLATE utf8_bin GENERATED ALWAYS AS (reverse(`phone`)) STORED COMMENT '倒序手机号，用于按尾号搜索',
   `address` varchar(255) COLLATE utf8_bin DEFAULT NULL COMMENT '地址',
   `user_name` varchar(32) COLLATE utf8_bin DEFAULT NULL COMMENT '用户名称',
   `consignee` varchar(32) COLLATE utf8_bin DEFAULT NULL COMMENT '收货人',
@@ -182,7 +193,12 @@ CREATE TABLE `orders` (
   `pack_amount` int DEFAULT NULL COMMENT '打包费',
   `tableware_number` int DEFAULT NULL COMMENT '餐具数量',
   `tableware_status` tinyint(1) NOT NULL DEFAULT '1' COMMENT '餐具数量状态  1按餐量提供  0选择具体数量',
-  PRIMARY KEY (`id`)
+  PRIMARY KEY (`id`),
+  KEY `idx_number` (`number`),
+  KEY `idx_phone` (`phone`),
+  KEY `idx_phone_reversed` (`phone_reversed`),
+  KEY `idx_status_order_time` (`status`,`order_time`),
+  KEY `idx_user_id_order_time` (`user_id`,`order_time`)
 ) ENGINE=InnoDB AUTO_INCREMENT=4 DEFAULT CHARSET=utf8mb3 COLLATE=utf8_bin COMMENT='订单表';
 
 DROP TABLE IF EXISTS `setmeal`;
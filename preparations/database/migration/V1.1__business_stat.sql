@@ -0,0 +1,11 @@
+USE `billion_supermarket`;
+
+-- 营业数据小时汇总表，首次启动时由服务端根据历史订单和用户数据自动回填
+CREATE TABLE IF NOT EXISTS `business_stat` (
+  `stat_time` datetime NOT NULL COMMENT '统计时段（整点）',
+  `turnover` decimal(12,2) NOT NULL DEFAULT '0.00' COMMENT '营业额',
+  `valid_order_count` int NOT NULL DEFAULT '0' COMMENT '有效订单数',
+  `total_order_count` int NOT NULL DEFAULT '0' COMMENT '订单总数',
+  `new_user_count` int NOT NULL DEFAULT '0' COMMENT '新增用户数',
+  PRIMARY KEY (`stat_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb3 COLLATE=utf8_bin COMMENT='营业数据小时汇总表';
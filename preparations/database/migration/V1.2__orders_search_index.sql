@@ -0,0 +1,11 @@
+USE `billion_supermarket`;
+
+-- 订单搜索索引：订单号、手机号按前缀匹配，手机号尾号通过倒序列按前缀匹配
+-- 添加存储型生成列会重建orders表，建议在业务低峰期执行
+ALTER TABLE `orders`
+  ADD COLUMN `phone_reversed` varchar(11) COLLATE utf8_bin GENERATED ALWAYS AS (reverse(`phone`)) STORED COMMENT '倒序手机号，用于按尾号搜索' AFTER `phone`,
+  ADD INDEX `idx_number` (`number`),
+  ADD INDEX `idx_phone` (`phone`),
+  ADD INDEX `idx_phone_reversed` (`phone_reversed`),
+  ADD INDEX `idx_status_order_time` (`status`, `order_time`),
+  ADD INDEX `idx_user_id_order_time` (`user_id`, `order_time`);